@@ -0,0 +1,112 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.AccessorStrategy;
+import com.surmize.snaporm.EntityInstantiator;
+import com.surmize.snaporm.FieldAccessor;
+import com.surmize.snaporm.MethodHandleAccessorStrategy;
+import com.surmize.snaporm.ReflectionAccessorStrategy;
+import com.surmize.snaporm.ValueType;
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creates and populates a 24 column entity the way the row mapper does, comparing
+ * the legacy Class.newInstance()/Field.set path against the accessor strategies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessorBenchmark {
+
+    @Param({"reflection", "methodhandle"})
+    public String strategy;
+
+    private Field[] fields;
+    private ValueType[] types;
+    private FieldAccessor[] accessors;
+    private EntityInstantiator instantiator;
+
+    @Setup
+    public void setup() {
+        AccessorStrategy accessorStrategy = "methodhandle".equals(strategy)
+                ? new MethodHandleAccessorStrategy() : new ReflectionAccessorStrategy();
+        List<Field> fieldList = new ArrayList<>();
+        for (Field field : WideEntity.class.getDeclaredFields()) {
+            fieldList.add(field);
+        }
+        fields = fieldList.toArray(new Field[fieldList.size()]);
+        types = new ValueType[fields.length];
+        accessors = new FieldAccessor[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            types[i] = ValueType.of(fields[i].getType());
+            accessors[i] = accessorStrategy.getFieldAccessor(fields[i]);
+        }
+        instantiator = accessorStrategy.getInstantiator(WideEntity.class);
+    }
+
+    @Benchmark
+    public Object legacyNewInstanceAndFieldSet() throws Exception {
+        Object entity = WideEntity.class.newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            switch (types[i]) {
+                case LONG:
+                    fields[i].set(entity, (long) i);
+                    break;
+                case DOUBLE:
+                    fields[i].set(entity, (double) i);
+                    break;
+                case INT:
+                    fields[i].set(entity, i);
+                    break;
+                default:
+                    fields[i].set(entity, "value");
+                    break;
+            }
+        }
+        return entity;
+    }
+
+    @Benchmark
+    public Object accessorStrategy() throws SQLException {
+        Object entity = instantiator.newInstance();
+        for (int i = 0; i < accessors.length; i++) {
+            switch (types[i]) {
+                case LONG:
+                    accessors[i].setLong(entity, i);
+                    break;
+                case DOUBLE:
+                    accessors[i].setDouble(entity, i);
+                    break;
+                case INT:
+                    accessors[i].setInt(entity, i);
+                    break;
+                default:
+                    accessors[i].set(entity, "value");
+                    break;
+            }
+        }
+        return entity;
+    }
+
+    @Benchmark
+    public Object instantiate() throws SQLException {
+        return instantiator.newInstance();
+    }
+}
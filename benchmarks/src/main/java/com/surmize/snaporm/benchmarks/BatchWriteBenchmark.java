@@ -0,0 +1,86 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.DataSourceManager;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * insertAll and updateAll of entities batches; inserts read back the
+ * generated keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchWriteBenchmark {
+
+    @Param({"1000"})
+    public int entities;
+
+    @Param({"100", "500"})
+    public int batchSize;
+
+    private NarrowEntityDAO dao;
+    private List<NarrowEntity> inserted;
+    private int version;
+
+    @Setup
+    public void setup() throws SQLException {
+        BenchmarkData.createSchema();
+        dao = new NarrowEntityDAO();
+        dao.setBatchSize(batchSize);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetTable() throws SQLException {
+        DataSourceManager dsMan = DataSourceManager.getInstance();
+        Connection con = dsMan.getConnection();
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("TRUNCATE TABLE narrow_entity");
+        } finally {
+            dsMan.closeConnection(con);
+        }
+        inserted = newEntities();
+        dao.insertAll(inserted);
+    }
+
+    private List<NarrowEntity> newEntities() {
+        List<NarrowEntity> list = new ArrayList<>(entities);
+        for (int i = 1; i <= entities; i++) {
+            list.add(BenchmarkData.narrowEntity(i));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public int insertAll() throws SQLException {
+        return dao.insertAll(newEntities());
+    }
+
+    @Benchmark
+    public int updateAll() throws SQLException {
+        version++;
+        for (NarrowEntity entity : inserted) {
+            entity.volume = version;
+        }
+        return dao.updateAll(inserted);
+    }
+}
@@ -0,0 +1,159 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.BaseDAO;
+import com.surmize.snaporm.DataSourceManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import org.h2.tools.SimpleResultSet;
+
+/**
+ * Schema and rows shared by the benchmarks, in the H2 database configured in
+ * dev-snaporm.properties or as an in-memory result set.
+ */
+final class BenchmarkData {
+
+    static final String NARROW = "narrow";
+    static final String WIDE = "wide";
+
+    private BenchmarkData() {
+    }
+
+    static Class<?> entityClass(String entity) {
+        return WIDE.equals(entity) ? WideEntity.class : NarrowEntity.class;
+    }
+
+    static BaseDAO<?> dao(String entity) {
+        return WIDE.equals(entity) ? new WideEntityDAO() : new NarrowEntityDAO();
+    }
+
+    static String tableName(String entity) {
+        return WIDE.equals(entity) ? "wide_entity" : "narrow_entity";
+    }
+
+    static void createSchema() throws SQLException {
+        DataSourceManager dsMan = DataSourceManager.getInstance();
+        Connection con = dsMan.getConnection();
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS narrow_entity");
+            stmt.execute("CREATE TABLE narrow_entity (id BIGINT AUTO_INCREMENT PRIMARY KEY, symbol VARCHAR(16), price DOUBLE, volume INT)");
+            stmt.execute("DROP TABLE IF EXISTS wide_entity");
+            StringBuilder sql = new StringBuilder("CREATE TABLE wide_entity (id BIGINT PRIMARY KEY");
+            for (int i = 1; i <= 7; i++) {
+                sql.append(", l").append(i).append(" BIGINT");
+            }
+            for (int i = 1; i <= 8; i++) {
+                sql.append(", d").append(i).append(" DOUBLE");
+            }
+            for (int i = 1; i <= 4; i++) {
+                sql.append(", i").append(i).append(" INT");
+            }
+            for (int i = 1; i <= 4; i++) {
+                sql.append(", s").append(i).append(" VARCHAR(32)");
+            }
+            stmt.execute(sql.append(')').toString());
+        } finally {
+            dsMan.closeConnection(con);
+        }
+    }
+
+    static void insertRows(String entity, int rows) throws SQLException {
+        DataSourceManager dsMan = DataSourceManager.getInstance();
+        Connection con = dsMan.getConnection();
+        String sql = WIDE.equals(entity)
+                ? "INSERT INTO wide_entity VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)"
+                : "INSERT INTO narrow_entity (id, symbol, price, volume) VALUES (?,?,?,?)";
+        try (PreparedStatement stmt = con.prepareStatement(sql)) {
+            for (int row = 1; row <= rows; row++) {
+                Object[] values = WIDE.equals(entity) ? wideRow(row) : narrowRow(row);
+                for (int i = 0; i < values.length; i++) {
+                    stmt.setObject(i + 1, values[i]);
+                }
+                stmt.addBatch();
+                if (row % 1000 == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        } finally {
+            dsMan.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return an in-memory result set with the entity's columns, rewound with
+     * beforeFirst() between benchmark invocations
+     */
+    static SimpleResultSet resultSet(String entity, int rows) {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.setAutoClose(false);
+        if (WIDE.equals(entity)) {
+            rs.addColumn("id", Types.BIGINT, 19, 0);
+            for (int i = 1; i <= 7; i++) {
+                rs.addColumn("l" + i, Types.BIGINT, 19, 0);
+            }
+            for (int i = 1; i <= 8; i++) {
+                rs.addColumn("d" + i, Types.DOUBLE, 17, 0);
+            }
+            for (int i = 1; i <= 4; i++) {
+                rs.addColumn("i" + i, Types.INTEGER, 10, 0);
+            }
+            for (int i = 1; i <= 4; i++) {
+                rs.addColumn("s" + i, Types.VARCHAR, 32, 0);
+            }
+        } else {
+            rs.addColumn("id", Types.BIGINT, 19, 0);
+            rs.addColumn("symbol", Types.VARCHAR, 16, 0);
+            rs.addColumn("price", Types.DOUBLE, 17, 0);
+            rs.addColumn("volume", Types.INTEGER, 10, 0);
+        }
+        for (int row = 1; row <= rows; row++) {
+            rs.addRow(WIDE.equals(entity) ? wideRow(row) : narrowRow(row));
+        }
+        return rs;
+    }
+
+    static Object[] narrowRow(int row) {
+        return new Object[]{(long) row, "SYM" + row, row * 1.5d, row};
+    }
+
+    static Object[] wideRow(int row) {
+        Object[] values = new Object[24];
+        int i = 0;
+        values[i++] = (long) row;
+        for (int c = 1; c <= 7; c++) {
+            values[i++] = (long) row * c;
+        }
+        for (int c = 1; c <= 8; c++) {
+            values[i++] = row * 0.5d * c;
+        }
+        for (int c = 1; c <= 4; c++) {
+            values[i++] = row + c;
+        }
+        for (int c = 1; c <= 4; c++) {
+            values[i++] = "value" + row + "-" + c;
+        }
+        return values;
+    }
+
+    static NarrowEntity narrowEntity(int row) {
+        NarrowEntity entity = new NarrowEntity();
+        entity.symbol = "SYM" + row;
+        entity.price = row * 1.5d;
+        entity.volume = row;
+        return entity;
+    }
+
+    static WideEntity wideEntity(int row) {
+        WideEntity entity = new WideEntity();
+        entity.id = row;
+        entity.l1 = row;
+        entity.d1 = row * 0.5d;
+        entity.i1 = row;
+        entity.s1 = "value" + row;
+        entity.s2 = "value" + row;
+        return entity;
+    }
+}
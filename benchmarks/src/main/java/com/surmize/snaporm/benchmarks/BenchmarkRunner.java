@@ -0,0 +1,33 @@
+package com.surmize.snaporm.benchmarks;
+
+import java.io.File;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the optional regular expression with the GC
+ * profiler, so allocation per operation is reported next to the timings, and
+ * writes the results as JSON to target/jmh-results.json or the file named by
+ * the snaporm.benchmark.results system property.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com\\.surmize\\.snaporm\\.benchmarks\\..*";
+        File results = new File(System.getProperty("snaporm.benchmark.results", "target/jmh-results.json"));
+        if (results.getParentFile() != null) {
+            results.getParentFile().mkdirs();
+        }
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.getPath())
+                .build();
+        new Runner(options).run();
+    }
+}
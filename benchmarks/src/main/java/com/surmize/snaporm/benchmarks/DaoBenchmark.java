@@ -0,0 +1,70 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.BaseDAO;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full DAO round trips through the connection pool against an in-memory H2
+ * table of 10,000 rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    private static final int ROWS = 10000;
+
+    @Param({"narrow", "wide"})
+    public String entity;
+
+    private BaseDAO<?> dao;
+    private String selectAll;
+
+    @Setup
+    public void setup() throws SQLException {
+        BenchmarkData.createSchema();
+        BenchmarkData.insertRows(entity, ROWS);
+        dao = BenchmarkData.dao(entity);
+        selectAll = "SELECT * FROM " + BenchmarkData.tableName(entity);
+    }
+
+    @Benchmark
+    public Object findEntityById() throws SQLException {
+        return dao.findEntityById((long) ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+    }
+
+    @Benchmark
+    public List<?> executeSelect10k() throws SQLException {
+        return dao.executeSelect(selectAll);
+    }
+
+    @Benchmark
+    public long streamSelect10k() throws SQLException {
+        try (Stream<?> rows = dao.streamSelect(selectAll)) {
+            return rows.count();
+        }
+    }
+
+    @Benchmark
+    public Object instantiateEntity() throws SQLException {
+        return dao.instantiateEntity();
+    }
+}
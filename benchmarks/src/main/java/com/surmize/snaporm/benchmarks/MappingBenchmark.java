@@ -0,0 +1,83 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.EntityMetadata;
+import com.surmize.snaporm.ResultSetMapper;
+import com.surmize.snaporm.RowMapper;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps rows from an in-memory result set, so only SnapORM's mapping is
+ * measured and not the driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"narrow", "wide"})
+    public String entity;
+
+    @Param({"1", "10000"})
+    public int rows;
+
+    private SimpleResultSet resultSet;
+    private Class<?> entityClass;
+    private EntityMetadata metadata;
+    private final ResultSetMapper mapper = new ResultSetMapper();
+
+    @Setup
+    public void setup() {
+        entityClass = BenchmarkData.entityClass(entity);
+        metadata = EntityMetadata.forClass(entityClass);
+        resultSet = BenchmarkData.resultSet(entity, rows);
+    }
+
+    /**
+     * The executeSelect loop: one RowMapper per result set.
+     */
+    @Benchmark
+    public List<Object> rowMapper() throws SQLException {
+        resultSet.beforeFirst();
+        List<Object> results = new ArrayList<>(rows);
+        RowMapper rowMapper = mapper.getRowMapper(resultSet, entityClass);
+        while (resultSet.next()) {
+            Object row = metadata.newInstance();
+            rowMapper.mapRow(resultSet, row);
+            results.add(row);
+        }
+        return results;
+    }
+
+    /**
+     * ResultSetMapper.mapResults called for every row, as older callers do.
+     */
+    @Benchmark
+    public List<Object> mapResults() throws SQLException {
+        resultSet.beforeFirst();
+        List<Object> results = new ArrayList<>(rows);
+        while (resultSet.next()) {
+            Object row = metadata.newInstance();
+            mapper.mapResults(resultSet, row);
+            results.add(row);
+        }
+        return results;
+    }
+}
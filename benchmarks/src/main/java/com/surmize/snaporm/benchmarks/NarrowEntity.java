@@ -0,0 +1,19 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.ColumnName;
+import com.surmize.snaporm.PK;
+import com.surmize.snaporm.TableName;
+
+@TableName("narrow_entity")
+public class NarrowEntity {
+
+    @PK
+    @ColumnName("id")
+    public Long id;
+    @ColumnName("symbol")
+    public String symbol;
+    @ColumnName("price")
+    public double price;
+    @ColumnName("volume")
+    public Integer volume;
+}
@@ -0,0 +1,6 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.BaseDAO;
+
+public class NarrowEntityDAO extends BaseDAO<NarrowEntity> {
+}
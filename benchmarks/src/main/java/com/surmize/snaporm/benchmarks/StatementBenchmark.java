@@ -0,0 +1,89 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.DataSourceManager;
+import com.surmize.snaporm.EntityMetadata;
+import com.surmize.snaporm.PreparedStatementGenerator;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SQL generation on its own, and the get*Statement methods that also prepare
+ * and bind the statement on an H2 connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementBenchmark {
+
+    @Param({"narrow", "wide"})
+    public String entity;
+
+    private final PreparedStatementGenerator generator = new PreparedStatementGenerator();
+    private Object row;
+    private EntityMetadata metadata;
+    private Connection con;
+
+    @Setup
+    public void setup() throws SQLException {
+        BenchmarkData.createSchema();
+        row = BenchmarkData.WIDE.equals(entity) ? BenchmarkData.wideEntity(1) : BenchmarkData.narrowEntity(1);
+        if (row instanceof NarrowEntity) {
+            ((NarrowEntity) row).id = 1L;
+        }
+        metadata = EntityMetadata.forEntity(row);
+        con = DataSourceManager.getInstance().getConnection();
+    }
+
+    @TearDown
+    public void tearDown() {
+        DataSourceManager.getInstance().closeConnection(con);
+    }
+
+    @Benchmark
+    public String insertSql() throws SQLException {
+        return generator.getInsertSql(metadata, generator.getInsertColumns(row));
+    }
+
+    @Benchmark
+    public String updateSql() throws SQLException {
+        return generator.getUpdateSql(metadata, generator.getUpdateColumns(row));
+    }
+
+    @Benchmark
+    public void insertStatement() throws SQLException {
+        try (PreparedStatement stmt = generator.getInsertStatement(con, row)) {
+            stmt.clearParameters();
+        }
+    }
+
+    @Benchmark
+    public void updateStatement() throws SQLException {
+        try (PreparedStatement stmt = generator.getUpdateStatement(con, row)) {
+            stmt.clearParameters();
+        }
+    }
+
+    @Benchmark
+    public void findByIdStatement() throws SQLException {
+        try (PreparedStatement stmt = generator.getFindByIdStatement(con, row, 1L)) {
+            stmt.clearParameters();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.surmize.snaporm.benchmarks;
+
+import com.surmize.snaporm.ColumnName;
+import com.surmize.snaporm.PK;
+import com.surmize.snaporm.TableName;
+
+@TableName("wide_entity")
+public class WideEntity {
+
+    @PK
+    @ColumnName("id")
+    public long id;
+    @ColumnName("l1")
+    public long l1;
+    @ColumnName("l2")
+    public long l2;
+    @ColumnName("l3")
+    public long l3;
+    @ColumnName("l4")
+    public long l4;
+    @ColumnName("l5")
+    public long l5;
+    @ColumnName("l6")
+    public long l6;
+    @ColumnName("l7")
+    public long l7;
+    @ColumnName("d1")
+    public double d1;
+    @ColumnName("d2")
+    public double d2;
+    @ColumnName("d3")
+    public double d3;
+    @ColumnName("d4")
+    public double d4;
+    @ColumnName("d5")
+    public double d5;
+    @ColumnName("d6")
+    public double d6;
+    @ColumnName("d7")
+    public double d7;
+    @ColumnName("d8")
+    public double d8;
+    @ColumnName("i1")
+    public int i1;
+    @ColumnName("i2")
+    public int i2;
+    @ColumnName("i3")
+    public int i3;
+    @ColumnName("i4")
+    public int i4;
+    @ColumnName("s1")
+    public String s1;
+    @ColumnName("s2")
+    public String s2;
+    @ColumnName("s3")
+    public String s3;
+    @ColumnName("s4")
+    public String s4;
+}
@@ -0,0 +1,223 @@
+package com.surmize.snaporm.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a GeneratedMapper named <Entity>_SnapMapper for every class with
+ * @TableName or @ColumnName fields. Entities it cannot map without reflection
+ * (private fields without accessors, final fields, no accessible no-arg
+ * constructor) are skipped with a note and keep using reflection at runtime.
+ */
+@SupportedAnnotationTypes({MapperProcessor.TABLE_NAME, MapperProcessor.COLUMN_NAME})
+public class MapperProcessor extends AbstractProcessor {
+
+    static final String PACKAGE = "com.surmize.snaporm";
+    static final String TABLE_NAME = PACKAGE + ".TableName";
+    static final String COLUMN_NAME = PACKAGE + ".ColumnName";
+    static final String PK = PACKAGE + ".PK";
+    static final String ONE_TO_MANY = PACKAGE + ".OneToMany";
+    static final String MANY_TO_ONE = PACKAGE + ".ManyToOne";
+    static final String CLASS_SUFFIX = "_SnapMapper";
+
+    private final Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<String, TypeElement> entities = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            String name = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (name.equals(TABLE_NAME) && element instanceof TypeElement) {
+                    entities.put(((TypeElement) element).getQualifiedName().toString(), (TypeElement) element);
+                } else if (name.equals(COLUMN_NAME) && element.getEnclosingElement() instanceof TypeElement) {
+                    TypeElement type = (TypeElement) element.getEnclosingElement();
+                    entities.put(type.getQualifiedName().toString(), type);
+                }
+            }
+        }
+        for (TypeElement entity : entities.values()) {
+            if (processed.add(entity.getQualifiedName().toString())) {
+                generate(entity);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement entity) {
+        String problem = checkEntity(entity);
+        List<MapperSource.Column> columns = new ArrayList<>();
+        if (problem == null) {
+            problem = findColumns(entity, columns);
+        }
+        if (problem != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "No SnapORM mapper generated for " + entity.getQualifiedName() + ": " + problem, entity);
+            return;
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(entity).toString();
+        String mapperName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + CLASS_SUFFIX;
+        AnnotationMirror tableName = findAnnotation(entity, TABLE_NAME);
+        String table = tableName != null ? annotationValue(tableName, "value") : binaryName;
+        MapperSource source = new MapperSource(packageName, mapperName, entity.getQualifiedName().toString(), table, columns);
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    packageName.isEmpty() ? mapperName : packageName + "." + mapperName, entity);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + mapperName + ": " + ex.getMessage(), entity);
+        }
+    }
+
+    private String checkEntity(TypeElement entity) {
+        if (entity.getKind() != ElementKind.CLASS || entity.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "not a concrete class";
+        }
+        if (!entity.getTypeParameters().isEmpty()) {
+            return "generic classes are not supported";
+        }
+        for (Element type = entity; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                return "private classes are not supported";
+            }
+            if (((TypeElement) type).getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC)) {
+                return "inner classes are not supported";
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(entity.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return null;
+            }
+        }
+        return "no accessible no-arg constructor";
+    }
+
+    private String findColumns(TypeElement entity, List<MapperSource.Column> columns) {
+        List<VariableElement> fields = ElementFilter.fieldsIn(entity.getEnclosedElements());
+        VariableElement pkField = null;
+        for (VariableElement field : fields) {
+            if (findAnnotation(field, PK) != null) {
+                pkField = field;
+                break;
+            }
+        }
+        if (pkField == null) {
+            // like EntityMetadata, fall back to a public id field
+            for (VariableElement field : fields) {
+                if (field.getSimpleName().contentEquals("id") && field.getModifiers().contains(Modifier.PUBLIC)) {
+                    pkField = field;
+                }
+            }
+        }
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(entity));
+        for (VariableElement field : fields) {
+            AnnotationMirror columnName = findAnnotation(field, COLUMN_NAME);
+            if (columnName == null || findAnnotation(field, ONE_TO_MANY) != null || findAnnotation(field, MANY_TO_ONE) != null) {
+                continue;
+            }
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.FINAL)) {
+                return "field " + field.getSimpleName() + " is static or final";
+            }
+            TypeMirror type = field.asType();
+            if (type.getKind() == TypeKind.TYPEVAR) {
+                return "field " + field.getSimpleName() + " has a type variable type";
+            }
+            String getter = null;
+            String setter = null;
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                getter = findGetter(methods, field);
+                setter = findSetter(methods, field);
+                if (getter == null || setter == null) {
+                    return "field " + field.getSimpleName() + " is private and has no getter and setter";
+                }
+            }
+            columns.add(new MapperSource.Column(annotationValue(columnName, "value"), field.getSimpleName().toString(),
+                    type, getter, setter, field.equals(pkField)));
+        }
+        return null;
+    }
+
+    private String findGetter(List<ExecutableElement> methods, VariableElement field) {
+        String suffix = capitalize(field.getSimpleName().toString());
+        List<String> names = field.asType().getKind() == TypeKind.BOOLEAN
+                ? Arrays.asList("is" + suffix, "get" + suffix) : Arrays.asList("get" + suffix);
+        for (ExecutableElement method : methods) {
+            if (names.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+                    && isCallable(method) && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return method.getSimpleName().toString();
+            }
+        }
+        return null;
+    }
+
+    private String findSetter(List<ExecutableElement> methods, VariableElement field) {
+        String name = "set" + capitalize(field.getSimpleName().toString());
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1 && isCallable(method)
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCallable(ExecutableElement method) {
+        return !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String annotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+}
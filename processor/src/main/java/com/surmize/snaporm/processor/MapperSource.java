@@ -0,0 +1,447 @@
+package com.surmize.snaporm.processor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Source of one generated mapper. The SQL it embeds is built exactly as
+ * PreparedStatementGenerator builds it, so statement caches and query
+ * statistics see the same text either way. Everything is referred to by its
+ * fully qualified name so entity names cannot clash with imports.
+ */
+class MapperSource {
+
+    private static final String RUNTIME = MapperProcessor.PACKAGE + ".";
+    private static final String GENERATOR = RUNTIME + "PreparedStatementGenerator";
+
+    enum Kind {
+        INT("Int", "int", "java.lang.Integer"),
+        LONG("Long", "long", "java.lang.Long"),
+        DOUBLE("Double", "double", "java.lang.Double"),
+        FLOAT("Float", "float", "java.lang.Float"),
+        BOOLEAN("Boolean", "boolean", "java.lang.Boolean"),
+        STRING("String", null, "java.lang.String"),
+        DATE(null, null, "java.util.Date"),
+        LOCAL_DATE(null, null, "java.time.LocalDate"),
+        LOCAL_DATE_TIME(null, null, "java.time.LocalDateTime"),
+        LOCAL_TIME(null, null, "java.time.LocalTime"),
+        INSTANT(null, null, "java.time.Instant"),
+        OTHER(null, null, null);
+
+        final String jdbcName;
+        final String primitiveName;
+        final String className;
+
+        Kind(String jdbcName, String primitiveName, String className) {
+            this.jdbcName = jdbcName;
+            this.primitiveName = primitiveName;
+            this.className = className;
+        }
+
+        static Kind of(TypeMirror type) {
+            for (Kind kind : values()) {
+                if (type.getKind().isPrimitive() ? type.toString().equals(kind.primitiveName) : isClass(type, kind.className)) {
+                    return kind;
+                }
+            }
+            return OTHER;
+        }
+
+        private static boolean isClass(TypeMirror type, String className) {
+            return className != null && type.getKind() == TypeKind.DECLARED
+                    && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(className);
+        }
+    }
+
+    static class Column {
+
+        final String name;
+        final String field;
+        final String type;
+        final Kind kind;
+        final boolean primitive;
+        final String boxedType;
+        final String getter;
+        final String setter;
+        final boolean primaryKey;
+
+        Column(String name, String field, TypeMirror type, String getter, String setter, boolean primaryKey) {
+            this.name = name;
+            this.field = field;
+            this.type = type.toString();
+            this.kind = Kind.of(type);
+            this.primitive = type.getKind().isPrimitive();
+            this.boxedType = primitive ? boxed(type.getKind()) : this.type;
+            this.getter = getter;
+            this.setter = setter;
+            this.primaryKey = primaryKey;
+        }
+
+        String read() {
+            return getter != null ? "entity." + getter + "()" : "entity." + field;
+        }
+
+        String write(String value) {
+            return setter != null ? "entity." + setter + "(" + value + ");" : "entity." + field + " = " + value + ";";
+        }
+
+        private static String boxed(TypeKind kind) {
+            switch (kind) {
+                case INT:
+                    return "java.lang.Integer";
+                case LONG:
+                    return "java.lang.Long";
+                case DOUBLE:
+                    return "java.lang.Double";
+                case FLOAT:
+                    return "java.lang.Float";
+                case BOOLEAN:
+                    return "java.lang.Boolean";
+                case SHORT:
+                    return "java.lang.Short";
+                case BYTE:
+                    return "java.lang.Byte";
+                default:
+                    return "java.lang.Character";
+            }
+        }
+    }
+
+    private final String packageName;
+    private final String mapperName;
+    private final String entityName;
+    private final String table;
+    private final List<Column> columns;
+    private final Column primaryKey;
+    private final StringBuilder out = new StringBuilder();
+    private final Deque<Boolean> blocks = new ArrayDeque<>();
+    private int indent;
+
+    MapperSource(String packageName, String mapperName, String entityName, String table, List<Column> columns) {
+        this.packageName = packageName;
+        this.mapperName = mapperName;
+        this.entityName = entityName;
+        this.table = table;
+        this.columns = columns;
+        Column pk = null;
+        for (Column column : columns) {
+            if (column.primaryKey) {
+                pk = column;
+            }
+        }
+        this.primaryKey = pk;
+    }
+
+    @Override
+    public String toString() {
+        out.setLength(0);
+        line("// Generated by SnapORM-processor from " + entityName + ". Do not edit.");
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+        }
+        line("");
+        line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        open("public final class " + mapperName + " implements " + RUNTIME + "GeneratedMapper");
+        StringBuilder names = new StringBuilder();
+        for (Column column : columns) {
+            names.append(names.length() == 0 ? "" : ", ").append(literal(column.name));
+        }
+        line("private static final String[] COLUMN_NAMES = {" + names + "};");
+        line("");
+        method("public String[] getColumnNames()");
+        line("return COLUMN_NAMES.clone();");
+        close();
+        method("public Object newInstance()");
+        line("return new " + entityName + "();");
+        close();
+        method("public " + RUNTIME + "FieldAccessor getAccessor(int column)");
+        line("return new Accessor(column);");
+        close();
+        writeMapRow();
+        writeBindColumns();
+        writeSql();
+        writeAccessor();
+        close();
+        return out.toString();
+    }
+
+    private void writeMapRow() {
+        method("public void mapRow(java.sql.ResultSet rs, int[] indexes, Object object) throws java.sql.SQLException");
+        line(entityName + " entity = (" + entityName + ") object;");
+        line("int index;");
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.kind == Kind.OTHER) {
+                // not mapped by RowMapper either
+                continue;
+            }
+            open("if ((index = indexes[" + i + "]) > 0)");
+            switch (column.kind) {
+                case STRING:
+                    line(column.write("rs.getString(index)"));
+                    break;
+                case DATE:
+                    line(column.write("rs.getDate(index)"));
+                    break;
+                case LOCAL_DATE:
+                    line("java.sql.Date value = rs.getDate(index);");
+                    line(column.write("value == null ? null : value.toLocalDate()"));
+                    break;
+                case LOCAL_DATE_TIME:
+                    line("java.sql.Timestamp value = rs.getTimestamp(index);");
+                    line(column.write("value == null ? null : value.toLocalDateTime()"));
+                    break;
+                case LOCAL_TIME:
+                    line("java.sql.Time value = rs.getTime(index);");
+                    line(column.write("value == null ? null : value.toLocalTime()"));
+                    break;
+                case INSTANT:
+                    line("java.sql.Timestamp value = rs.getTimestamp(index);");
+                    line(column.write("value == null ? null : value.toInstant()"));
+                    break;
+                default:
+                    if (column.primitive) {
+                        line(column.write("rs.get" + column.kind.jdbcName + "(index)"));
+                    } else {
+                        line(column.kind.primitiveName + " value = rs.get" + column.kind.jdbcName + "(index);");
+                        line(column.write(RUNTIME + "RowMapper.isNullWrappers() && rs.wasNull() ? null : value"));
+                    }
+                    break;
+            }
+            close();
+        }
+        close();
+    }
+
+    private void writeBindColumns() {
+        method("public int bindColumns(java.sql.PreparedStatement stmt, java.util.List<" + RUNTIME + "ColumnMetadata> columns, "
+                + "Object object, int parameterIndex) throws java.sql.SQLException");
+        line(entityName + " entity = (" + entityName + ") object;");
+        open("for (int i = 0, size = columns.size(); i < size; i++)");
+        line(RUNTIME + "ColumnMetadata column = columns.get(i);");
+        open("switch (column.getIndex())");
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.primitive) {
+                line("case " + i + ":");
+                indent++;
+                if (column.kind == Kind.OTHER) {
+                    line(GENERATOR + ".setParameter(stmt, parameterIndex, " + column.read() + ");");
+                } else {
+                    line("stmt.set" + column.kind.jdbcName + "(parameterIndex, " + column.read() + ");");
+                }
+                line("break;");
+                indent--;
+                continue;
+            }
+            open("case " + i + ":");
+            line(column.type + " value = " + column.read() + ";");
+            open("if (value == null)");
+            line(GENERATOR + ".setNull(stmt, parameterIndex, column);");
+            indent--;
+            blocks.pop();
+            open("} else");
+            if (column.kind.jdbcName != null) {
+                line("stmt.set" + column.kind.jdbcName + "(parameterIndex, value);");
+            } else {
+                line(GENERATOR + ".setParameter(stmt, parameterIndex, value);");
+            }
+            close();
+            line("break;");
+            close();
+        }
+        line("default:");
+        indent++;
+        line("throw new java.sql.SQLException(\"Column \" + column.getName() + \" is not mapped by " + mapperName + "\");");
+        indent--;
+        close();
+        line("parameterIndex++;");
+        close();
+        line("return parameterIndex;");
+        close();
+    }
+
+    private void writeSql() {
+        StringBuilder names = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        for (Column column : columns) {
+            names.append(column.name).append(',');
+            parameters.append("?,");
+            if (!column.primaryKey) {
+                assignments.append(column.name).append("=?,");
+            }
+        }
+        String insert = null;
+        String update = null;
+        String findById = null;
+        String delete = null;
+        String exists = null;
+        if (!columns.isEmpty()) {
+            names.setLength(names.length() - 1);
+            parameters.setLength(parameters.length() - 1);
+            insert = "INSERT INTO " + table + " (" + names + ")  VALUES (" + parameters + ") ";
+        }
+        if (primaryKey != null) {
+            if (assignments.length() > 0) {
+                assignments.setLength(assignments.length() - 1);
+                update = "UPDATE " + table + " SET " + assignments + " WHERE " + primaryKey.name + "=?";
+            }
+            findById = "SELECT " + names + " FROM " + table + " WHERE " + primaryKey.name + " = ?";
+            delete = "DELETE FROM " + table + " WHERE " + primaryKey.name + "=?";
+            exists = "SELECT COUNT(1) AS TOTAL FROM " + table + " WHERE " + primaryKey.name + "=?";
+        }
+        sqlMethod("getInsertSql", insert);
+        sqlMethod("getUpdateSql", update);
+        sqlMethod("getFindByIdSql", findById);
+        sqlMethod("getDeleteSql", delete);
+        sqlMethod("getExistsSql", exists);
+    }
+
+    private void sqlMethod(String name, String sql) {
+        method("public String " + name + "()");
+        line("return " + (sql == null ? "null" : literal(sql)) + ";");
+        close();
+    }
+
+    private void writeAccessor() {
+        open("private static final class Accessor implements " + RUNTIME + "FieldAccessor");
+        line("private final int column;");
+        line("");
+        open("Accessor(int column)");
+        line("this.column = column;");
+        close();
+        line("");
+        method("public Object get(Object object)");
+        line(entityName + " entity = (" + entityName + ") object;");
+        open("switch (column)");
+        for (int i = 0; i < columns.size(); i++) {
+            line("case " + i + ":");
+            indent++;
+            line("return " + columns.get(i).read() + ";");
+            indent--;
+        }
+        line("default:");
+        indent++;
+        line("throw new IllegalStateException(\"No column \" + column);");
+        indent--;
+        close();
+        close();
+        method("public void set(Object object, Object value)");
+        line(entityName + " entity = (" + entityName + ") object;");
+        open("switch (column)");
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            line("case " + i + ":");
+            indent++;
+            line(column.write("(" + column.boxedType + ") value"));
+            line("return;");
+            indent--;
+        }
+        line("default:");
+        indent++;
+        line("throw new IllegalStateException(\"No column \" + column);");
+        indent--;
+        close();
+        close();
+        typedAccessors(Kind.INT, "((Number) get(object)).intValue()");
+        typedAccessors(Kind.LONG, "((Number) get(object)).longValue()");
+        typedAccessors(Kind.DOUBLE, "((Number) get(object)).doubleValue()");
+        typedAccessors(Kind.FLOAT, "((Number) get(object)).floatValue()");
+        typedAccessors(Kind.BOOLEAN, "(Boolean) get(object)");
+        close();
+    }
+
+    private void typedAccessors(Kind kind, String fallback) {
+        String primitiveName = kind.primitiveName;
+        method("public " + primitiveName + " get" + kind.jdbcName + "(Object object)");
+        switchOnPrimitives(kind, true);
+        line("return " + fallback + ";");
+        close();
+        method("public void set" + kind.jdbcName + "(Object object, " + primitiveName + " value)");
+        switchOnPrimitives(kind, false);
+        line("set(object, value);");
+        close();
+    }
+
+    private void switchOnPrimitives(Kind kind, boolean get) {
+        boolean any = false;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (!column.primitive || column.kind != kind) {
+                continue;
+            }
+            if (!any) {
+                line(entityName + " entity = (" + entityName + ") object;");
+                open("switch (column)");
+                any = true;
+            }
+            line("case " + i + ":");
+            indent++;
+            if (get) {
+                line("return " + column.read() + ";");
+            } else {
+                line(column.write("value"));
+                line("return;");
+            }
+            indent--;
+        }
+        if (any) {
+            line("default:");
+            indent++;
+            line("break;");
+            indent--;
+            close();
+        }
+    }
+
+    private void method(String signature) {
+        line("@Override");
+        line(signature + " {");
+        indent++;
+        blocks.push(true);
+    }
+
+    private void open(String statement) {
+        line(statement + " {");
+        indent++;
+        blocks.push(false);
+    }
+
+    private void close() {
+        indent--;
+        if (out.length() > 1 && out.charAt(out.length() - 2) == '\n') {
+            // no blank line before a closing brace
+            out.setLength(out.length() - 1);
+        }
+        line("}");
+        if (blocks.pop()) {
+            line("");
+        }
+    }
+
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            for (int i = 0; i < indent; i++) {
+                out.append("    ");
+            }
+        }
+        out.append(text).append('\n');
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,257 @@
+package com.surmize.snaporm.processor;
+
+import com.surmize.snaporm.ColumnMetadata;
+import com.surmize.snaporm.DataSourceManager;
+import com.surmize.snaporm.EntityMetadata;
+import com.surmize.snaporm.GeneratedMapper;
+import com.surmize.snaporm.PreparedStatementGenerator;
+import com.surmize.snaporm.RowMapper;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles a fixture entity with the processor and checks that its generated
+ * mapper writes the same SQL, binds the same parameters and maps the same rows
+ * as the reflective path.
+ */
+public class MapperProcessorTest {
+
+    private static final String[] FIELDS = {
+        "@PK @ColumnName(\"id\") public Long id;",
+        "@ColumnName(\"name\") private String name;",
+        "@ColumnName(\"qty\") public int qty;",
+        "@ColumnName(\"price\") public Double price;",
+        "@ColumnName(\"active\") public boolean active;",
+        "@ColumnName(\"due_day\") public java.time.LocalDate dueDay;",
+        "@ColumnName(\"data\") public byte[] data;"
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final PreparedStatementGenerator generator = new PreparedStatementGenerator();
+
+    @Before
+    public void createTable() throws SQLException {
+        try (Connection con = DataSourceManager.getInstance().getConnection();
+                Statement stmt = con.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS fixture_items");
+            stmt.execute("CREATE TABLE fixture_items (id BIGINT PRIMARY KEY, name VARCHAR(20), qty INT, price DOUBLE,"
+                    + " active BOOLEAN, due_day DATE, data VARBINARY(16))");
+        }
+    }
+
+    @After
+    public void useGeneratedMappers() {
+        EntityMetadata.setUseGeneratedMappers(true);
+    }
+
+    private static String entitySource(List<String> fields) {
+        StringBuilder source = new StringBuilder("package fixture;\n\nimport com.surmize.snaporm.*;\n\n")
+                .append("@TableName(\"fixture_items\")\npublic class Item {\n");
+        for (String field : fields) {
+            source.append("    ").append(field).append('\n');
+        }
+        return source.append("    public String getName() { return name; }\n")
+                .append("    public void setName(String name) { this.name = name; }\n}\n").toString();
+    }
+
+    private File compile(String name, String source, boolean process) throws IOException {
+        File dir = folder.newFolder(name);
+        File sourceFile = new File(dir, "fixture/Item.java");
+        sourceFile.getParentFile().mkdirs();
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        String runtime = new File(GeneratedMapper.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = new ArrayList<>(Arrays.asList("-d", dir.getPath(), "-classpath", runtime));
+            if (!process) {
+                options.add("-proc:none");
+            }
+            CompilationTask task = compiler.getTask(null, files, diagnostics, options, null,
+                    files.getJavaFileObjects(sourceFile));
+            if (process) {
+                task.setProcessors(Collections.singletonList(new MapperProcessor()));
+            }
+            assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        }
+        return dir;
+    }
+
+    private Class<?> load(File dir) throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader());
+        return Class.forName("fixture.Item", true, loader);
+    }
+
+    private static Object newItem(EntityMetadata metadata, Long id, String name, Double price) throws SQLException {
+        Object item = metadata.newInstance();
+        metadata.getColumn("id").setValue(item, id);
+        metadata.getColumn("name").setValue(item, name);
+        metadata.getColumn("qty").setValue(item, 3);
+        metadata.getColumn("price").setValue(item, price);
+        metadata.getColumn("active").setValue(item, true);
+        metadata.getColumn("due_day").setValue(item, LocalDate.of(2024, 2, 29));
+        metadata.getColumn("data").setValue(item, new byte[]{1, 2});
+        return item;
+    }
+
+    private static PreparedStatement recorder(final List<String> calls) {
+        return (PreparedStatement) Proxy.newProxyInstance(MapperProcessorTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    calls.add(method.getName() + Arrays.deepToString(args));
+                    return null;
+                });
+    }
+
+    /**
+     * @return the calls binding the columns, given in generated order, on
+     * each path; the reflective columns are looked up by name
+     */
+    private List<List<String>> bind(EntityMetadata reflective, EntityMetadata generated, Object item) throws SQLException {
+        List<String> reflectiveCalls = new ArrayList<>();
+        PreparedStatement stmt = recorder(reflectiveCalls);
+        int parameterIndex = 1;
+        for (ColumnMetadata column : generated.getColumns()) {
+            generator.bindColumn(stmt, parameterIndex++, reflective.getColumn(column.getName()), item);
+        }
+        List<String> generatedCalls = new ArrayList<>();
+        assertEquals(parameterIndex,
+                generated.getGeneratedMapper().bindColumns(recorder(generatedCalls), generated.getColumns(), item, 1));
+        return Arrays.asList(reflectiveCalls, generatedCalls);
+    }
+
+    /**
+     * @return the values of the columns RowMapper maps; byte[] columns are
+     * bound but not read back by either path
+     */
+    private static Object[] values(EntityMetadata metadata, Object item) throws SQLException {
+        List<Object> values = new ArrayList<>();
+        for (String name : new String[]{"id", "name", "qty", "price", "active", "due_day"}) {
+            values.add(metadata.getColumn(name).getValue(item));
+        }
+        return values.toArray();
+    }
+
+    private void insert(EntityMetadata generated, Object item) throws SQLException {
+        try (Connection con = DataSourceManager.getInstance().getConnection();
+                PreparedStatement stmt = con.prepareStatement(generated.getGeneratedMapper().getInsertSql())) {
+            generated.getGeneratedMapper().bindColumns(stmt, generated.getColumns(), item, 1);
+            assertEquals(1, stmt.executeUpdate());
+        }
+    }
+
+    private static List<Object> select(EntityMetadata metadata) throws SQLException {
+        List<Object> items = new ArrayList<>();
+        try (Connection con = DataSourceManager.getInstance().getConnection();
+                Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT * FROM fixture_items ORDER BY id")) {
+            RowMapper mapper = new RowMapper(rs.getMetaData(), metadata);
+            while (rs.next()) {
+                Object item = metadata.newInstance();
+                mapper.mapRow(rs, item);
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    @Test
+    public void generatedMapperMatchesReflectivePath() throws Exception {
+        Class<?> itemClass = load(compile("ordered", entitySource(Arrays.asList(FIELDS)), true));
+        EntityMetadata.setUseGeneratedMappers(false);
+        EntityMetadata reflective = EntityMetadata.forClass(itemClass);
+        assertNull(reflective.getGeneratedMapper());
+        EntityMetadata.setUseGeneratedMappers(true);
+        EntityMetadata generated = EntityMetadata.forClass(itemClass);
+        GeneratedMapper mapper = generated.getGeneratedMapper();
+        assertNotNull(mapper);
+        List<ColumnMetadata> updateColumns = new ArrayList<>(reflective.getColumns());
+        updateColumns.remove(reflective.getPrimaryKey());
+        assertEquals(generator.getInsertSql(reflective, reflective.getColumns()), mapper.getInsertSql());
+        assertEquals(generator.getUpdateSql(reflective, updateColumns), mapper.getUpdateSql());
+        assertEquals(generator.getFindByIdSql(reflective), mapper.getFindByIdSql());
+        assertEquals(generator.getDeleteSql(reflective), mapper.getDeleteSql());
+        assertEquals(generator.getExistsSql(reflective), mapper.getExistsSql());
+
+        for (Object item : new Object[]{newItem(reflective, 1L, "one", null), newItem(reflective, 2L, null, 2.5)}) {
+            List<List<String>> calls = bind(reflective, generated, item);
+            assertEquals(calls.get(0), calls.get(1));
+            insert(generated, item);
+        }
+        List<Object> byReflection = select(reflective);
+        List<Object> byMapper = select(generated);
+        assertEquals(2, byMapper.size());
+        for (int i = 0; i < byMapper.size(); i++) {
+            assertArrayEquals(values(reflective, byReflection.get(i)), values(reflective, byMapper.get(i)));
+        }
+    }
+
+    @Test
+    public void columnsAreMatchedByNameNotFieldOrder() throws Exception {
+        File original = compile("original", entitySource(Arrays.asList(FIELDS)), true);
+        List<String> reversed = new ArrayList<>(Arrays.asList(FIELDS));
+        Collections.reverse(reversed);
+        File reordered = compile("reordered", entitySource(reversed), false);
+        // the mapper generated for the original field order, next to the reordered entity
+        for (File file : new File(original, "fixture").listFiles()) {
+            if (file.getName().startsWith("Item" + GeneratedMapper.CLASS_SUFFIX) && file.getName().endsWith(".class")) {
+                Files.copy(file.toPath(), new File(reordered, "fixture/" + file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Class<?> itemClass = load(reordered);
+        EntityMetadata.setUseGeneratedMappers(false);
+        EntityMetadata reflective = EntityMetadata.forClass(itemClass);
+        EntityMetadata.setUseGeneratedMappers(true);
+        EntityMetadata generated = EntityMetadata.forClass(itemClass);
+        GeneratedMapper mapper = generated.getGeneratedMapper();
+        assertNotNull(mapper);
+        List<String> names = new ArrayList<>();
+        for (ColumnMetadata column : generated.getColumns()) {
+            names.add(column.getName());
+        }
+        assertEquals(Arrays.asList(mapper.getColumnNames()), names);
+        assertEquals("id", generated.getPrimaryKey().getName());
+
+        Object item = newItem(generated, 1L, "one", 2.5);
+        List<List<String>> calls = bind(reflective, generated, item);
+        assertEquals(calls.get(0), calls.get(1));
+        insert(generated, item);
+        List<Object> items = select(generated);
+        assertEquals(1, items.size());
+        assertArrayEquals(values(reflective, item), values(reflective, items.get(0)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times every borrow so each implementation reports the same wait metrics.
+ */
+public abstract class AbstractConnectionPool implements ConnectionPool {
+
+    protected final PoolConfig config;
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowFailures = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final LongAccumulator maxBorrowWaitNanos = new LongAccumulator(Math::max, 0L);
+
+    protected AbstractConnectionPool(PoolConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public final Connection getConnection() throws SQLException {
+        return getConnection(-1);
+    }
+
+    @Override
+    public final Connection getConnection(long timeoutMillis) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection con = timeoutMillis < 0 ? borrowConnection() : borrowConnection(timeoutMillis);
+            borrowCount.increment();
+            return con;
+        } catch (SQLException | RuntimeException ex) {
+            borrowFailures.increment();
+            throw ex;
+        } finally {
+            long waited = System.nanoTime() - start;
+            borrowWaitNanos.add(waited);
+            maxBorrowWaitNanos.accumulate(waited);
+        }
+    }
+
+    protected abstract Connection borrowConnection() throws SQLException;
+
+    /**
+     * Borrows a connection waiting at most timeoutMillis. The default waits
+     * up to cp.MaxWait, as borrowConnection() does.
+     */
+    protected Connection borrowConnection(long timeoutMillis) throws SQLException {
+        return borrowConnection();
+    }
+
+    protected abstract int getActive();
+
+    protected abstract int getIdle();
+
+    protected abstract int getWaiting();
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public int getMaxActive() {
+        return config.getMaxActive();
+    }
+
+    @Override
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(config.getName(), getActive(), getIdle(), getWaiting(), getMaxActive(),
+                borrowCount.sum(), borrowFailures.sum(), borrowWaitNanos.sum(), maxBorrowWaitNanos.get());
+    }
+}
@@ -0,0 +1,14 @@
+package com.surmize.snaporm;
+
+import java.lang.reflect.Field;
+
+/**
+ * Creates the field accessors and instantiators used by EntityMetadata. Set
+ * with EntityMetadata.setAccessorStrategy(...).
+ */
+public interface AccessorStrategy {
+
+    FieldAccessor getFieldAccessor(Field field);
+
+    EntityInstantiator getInstantiator(Class<?> entityClass);
+}
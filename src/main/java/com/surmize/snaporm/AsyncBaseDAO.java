@@ -0,0 +1,228 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the operations of a BaseDAO on an executor and returns
+ * CompletableFutures, so independent lookups can run in parallel. All
+ * AsyncBaseDAOs share one limit of the maximum size of the DataSourceManager
+ * pool on the operations that hold a connection at once; maxConcurrency
+ * optionally caps a single DAO further.
+ *
+ * The default executor uses virtual threads on JDK 21 and later, and a fixed
+ * pool of maxConcurrency daemon threads otherwise. Operations run on other
+ * threads, so they never take part in a Transaction begun by the caller.
+ */
+public class AsyncBaseDAO<T> {
+
+    private final BaseDAO<T> dao;
+    private final Executor executor;
+    private final Semaphore permits;
+
+    public AsyncBaseDAO(BaseDAO<T> dao) {
+        this(dao, DefaultExecutorHolder.INSTANCE);
+    }
+
+    public AsyncBaseDAO(BaseDAO<T> dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+        this.permits = null;
+    }
+
+    public AsyncBaseDAO(BaseDAO<T> dao, int maxConcurrency) {
+        this(dao, DefaultExecutorHolder.INSTANCE, maxConcurrency);
+    }
+
+    public AsyncBaseDAO(BaseDAO<T> dao, Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.dao = dao;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public BaseDAO<T> getDao() {
+        return dao;
+    }
+
+    public CompletableFuture<List<T>> executeSelect(final String query) {
+        return executeSelect(query, null);
+    }
+
+    public CompletableFuture<List<T>> executeSelect(final String query, final List params) {
+        return submit(() -> dao.executeSelect(query, params));
+    }
+
+    public CompletableFuture<List<T>> executeSelect(final String query, final List params, final String... relations) {
+        return submit(() -> dao.executeSelect(query, params, relations));
+    }
+
+    public CompletableFuture<ColumnarResult<T>> selectColumnar(final String query, final List params) {
+        return submit(() -> dao.selectColumnar(query, params));
+    }
+
+    public CompletableFuture<Integer> executeUpdate(final String update, final List params) {
+        return submit(() -> dao.executeUpdate(update, params));
+    }
+
+    public CompletableFuture<T> findEntityById(final Object id) {
+        return submit(() -> dao.findEntityById(id));
+    }
+
+    public CompletableFuture<T> findEntityById(final Object id, final String... columns) {
+        return submit(() -> dao.findEntityById(id, columns));
+    }
+
+    public <P> CompletableFuture<P> findProjectionById(final Object id, final Class<P> projectionClass) {
+        return submit(() -> dao.findProjectionById(id, projectionClass));
+    }
+
+    public CompletableFuture<Page<T>> findPage(final String sortColumn, final String pageToken, final int pageSize) {
+        return submit(() -> dao.findPage(sortColumn, pageToken, pageSize));
+    }
+
+    public CompletableFuture<Map<Object, T>> findEntitiesByIds(final Collection<?> ids) {
+        return submit(() -> dao.findEntitiesByIds(ids));
+    }
+
+    public CompletableFuture<Integer> insertEntity(final T entity) {
+        return submit(() -> dao.insertEntity(entity));
+    }
+
+    public CompletableFuture<Object> insertEntityReturnKey(final T entity) {
+        return submit(() -> dao.insertEntityReturnKey(entity));
+    }
+
+    public CompletableFuture<Integer> updateEntity(final T entity) {
+        return submit(() -> dao.updateEntity(entity));
+    }
+
+    public CompletableFuture<Integer> insertOrUpdateEntity(final T entity) {
+        return submit(() -> dao.insertOrUpdateEntity(entity));
+    }
+
+    public CompletableFuture<Integer> deleteByPrimaryKey(final T entity) {
+        return submit(() -> dao.deleteByPrimaryKey(entity));
+    }
+
+    public CompletableFuture<Integer> insertAll(final Collection<T> entities) {
+        return submit(() -> dao.insertAll(entities));
+    }
+
+    public CompletableFuture<Integer> updateAll(final Collection<T> entities) {
+        return submit(() -> dao.updateAll(entities));
+    }
+
+    public CompletableFuture<Integer> deleteAll(final Collection<T> entities) {
+        return submit(() -> dao.deleteAll(entities));
+    }
+
+    /**
+     * Runs one findEntityById per id in parallel. The results are in id order,
+     * with null for ids that were not found.
+     */
+    public CompletableFuture<List<T>> findEachById(Collection<?> ids) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (Object id : ids) {
+            futures.add(findEntityById(id));
+        }
+        return allOf(futures);
+    }
+
+    /**
+     * Runs each query with its parameters in parallel and returns the results
+     * in query order.
+     */
+    public CompletableFuture<List<List<T>>> executeSelects(List<String> queries, List<List> params) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            futures.add(executeSelect(queries.get(i), params != null ? params.get(i) : null));
+        }
+        return allOf(futures);
+    }
+
+    public static <R> CompletableFuture<List<R>> allOf(final List<CompletableFuture<R>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenApply(ignore -> {
+            List<R> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    private <R> CompletableFuture<R> submit(final DaoCall<R> call) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                boolean acquired = false;
+                Semaphore shared = null;
+                try {
+                    if (permits != null) {
+                        permits.acquire();
+                        acquired = true;
+                    }
+                    Semaphore sharedPermits = DataSourceManager.getInstance().getAsyncPermits();
+                    sharedPermits.acquire();
+                    shared = sharedPermits;
+                    future.complete(call.call());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(ex);
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    if (shared != null) {
+                        shared.release();
+                    }
+                    if (acquired) {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private interface DaoCall<R> {
+
+        R call() throws SQLException;
+    }
+
+    private static class DefaultExecutorHolder {
+        private static final ExecutorService INSTANCE = createDefaultExecutor();
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Logger.getLogger(AsyncBaseDAO.class.getName()).log(Level.FINE, "Virtual threads not available", ex);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, DataSourceManager.getInstance().getMaxActive()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "snaporm-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
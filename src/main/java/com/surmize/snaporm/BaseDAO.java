@@ -8,22 +8,134 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BaseDAO<T> {
 
     protected final DataSourceManager dsMan;
     protected final ResultSetMapper mapper;
     protected final PreparedStatementGenerator statementGenerator;
+    protected final EntityCacheManager entityCacheManager;
+    protected final QueryListenerManager queryListeners;
+    protected final ChangeTracker changeTracker;
+    protected final QueryCache queryCache;
+    private final RelationLoader relationLoader;
+    private volatile Class<T> entityClass;
+    private int batchSize;
+    private int streamFetchSize;
+    private int inListSize;
+    private volatile boolean readFromPrimary;
+    private volatile boolean queryCacheEnabled;
+    private volatile long timeoutMillis;
 
     public BaseDAO() {
         dsMan = DataSourceManager.getInstance();
         mapper = new ResultSetMapper();
         statementGenerator = new PreparedStatementGenerator();
+        entityCacheManager = EntityCacheManager.getInstance();
+        queryListeners = QueryListenerManager.getInstance();
+        changeTracker = ChangeTracker.getInstance();
+        queryCache = QueryCache.getInstance();
+        relationLoader = new RelationLoader(dsMan, mapper, statementGenerator);
+        batchSize = PropertyManager.getIntegerSetting("snaporm.BatchSize", 500);
+        streamFetchSize = PropertyManager.getIntegerSetting("snaporm.StreamFetchSize", 1000);
+        inListSize = PropertyManager.getIntegerSetting("snaporm.InListSize", 256);
+        timeoutMillis = PropertyManager.getLongSetting("snaporm.TimeoutMillis", 0);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getInListSize() {
+        return inListSize;
+    }
+
+    public void setInListSize(int inListSize) {
+        if (inListSize < 1) {
+            throw new IllegalArgumentException("inListSize must be at least 1");
+        }
+        this.inListSize = inListSize;
+    }
+
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public boolean isReadFromPrimary() {
+        return readFromPrimary;
+    }
+
+    /**
+     * When true, this DAO's selects, finds and exists checks always use the
+     * primary instead of the replicas configured with cp.Replicas.
+     */
+    public void setReadFromPrimary(boolean readFromPrimary) {
+        this.readFromPrimary = readFromPrimary;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Limits each database call of this DAO, waiting for a connection and
+     * running its statements, to timeoutMillis; 0 for no limit. A call that
+     * runs over has its statement cancelled and throws
+     * DeadlineExceededException. Defaults to snaporm.TimeoutMillis.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public boolean isQueryCacheEnabled() {
+        return queryCacheEnabled;
+    }
+
+    /**
+     * When true, executeSelect(query, params) outside a transaction answers
+     * repeated queries from the QueryCache. Each caller gets its own copies
+     * of the cached entities. Results that fill the cache are read from the
+     * primary, so a lagging replica cannot cache stale rows.
+     */
+    public void setQueryCacheEnabled(boolean queryCacheEnabled) {
+        this.queryCacheEnabled = queryCacheEnabled;
     }
 
     public List<T> executeSelect(String query) throws SQLException {
@@ -31,61 +143,617 @@ public class BaseDAO<T> {
     }
 
     public List<T> executeSelect(String query, List params) throws SQLException {
+        if (queryCacheEnabled && dsMan.getCurrentTransaction() == null) {
+            return selectCached(query, params);
+        }
+        return select(query, params, false);
+    }
+
+    private List<T> selectCached(String query, List params) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        QueryCache.Key key = QueryCache.newKey(getEntityClass(), query, params);
+        List<?> cached = queryCache.get(key);
+        if (cached != null) {
+            List<T> results = new ArrayList<>(cached.size());
+            for (Object entity : cached) {
+                results.add(copyFromCache(metadata, entity));
+            }
+            return results;
+        }
+        long invalidationCount = queryCache.getInvalidationCount();
+        List<T> results = select(query, params, true);
+        List<Object> copies = new ArrayList<>(results.size());
+        for (T entity : results) {
+            copies.add(metadata.copy(entity));
+        }
+        queryCache.put(key, metadata.getTableName(), copies, invalidationCount);
+        return results;
+    }
+
+    private List<T> select(String query, List params, boolean onPrimary) throws SQLException {
         List<T> results = new ArrayList<>();
         Connection con = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.SELECT);
+        DeadlineScope deadline = startDeadline();
         try {
-            con = dsMan.getConnection();
+            con = onPrimary ? dsMan.getConnection() : getReadConnection();
+            timer.acquired();
             stmt = statementGenerator.getStatement(con, query, params);
             rs = stmt.executeQuery();
-            while (rs.next()) {
-                T entity = instantiateEntity();
-                mapper.mapResults(rs, entity);
-                results.add(entity);
-            }
+            timer.executed();
+            mapRows(rs, results);
+            timer.addRows(results.size());
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeAll(rs, stmt, con);
+            timer.finish();
+            deadline.close();
         }
         return results;
     }
 
+    /**
+     * Runs the select, then loads the named relations of the results as
+     * fetchRelations does.
+     */
+    public List<T> executeSelect(String query, List params, String... relations) throws SQLException {
+        List<T> results = executeSelect(query, params);
+        fetchRelations(results, relations);
+        return results;
+    }
+
+    /**
+     * Fills the named @OneToMany and @ManyToOne fields of the entities, with
+     * one IN query per relation and chunk of inListSize keys rather than one
+     * query per entity. Dotted paths such as "lines.product" also load the
+     * relations of the related entities. Entities loaded through one call
+     * share related instances.
+     */
+    public void fetchRelations(Collection<T> entities, String... relations) throws SQLException {
+        if (entities.isEmpty() || relations.length == 0) {
+            return;
+        }
+        Connection con = null;
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = getReadConnection();
+            relationLoader.fetch(con, entities, getEntityClass(), relations, inListSize);
+        } catch (SQLException ex) {
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeConnection(con);
+            deadline.close();
+        }
+    }
+
+    private void mapRows(ResultSet rs, List<T> results) throws SQLException {
+        RowMapper rowMapper = mapper.getRowMapper(rs, getEntityClass());
+        boolean trackChanges = rowMapper.getMetadata().isTrackChanges();
+        while (rs.next()) {
+            T entity = instantiateEntity();
+            rowMapper.mapRow(rs, entity);
+            if (trackChanges) {
+                changeTracker.snapshot(entity);
+            }
+            results.add(entity);
+        }
+    }
+
+    /**
+     * Opens a cursor over the rows of the select, fetched with the streaming
+     * fetch size. Inside a transaction the cursor shares the transaction's
+     * connection, so it uses the plain snaporm.StreamFetchSize instead: a
+     * streaming MySQL result set would lock the connection until closed.
+     */
+    public EntityCursor<T> openCursor(String query, List params) throws SQLException {
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        boolean restoreAutoCommit = false;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.SELECT);
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = getReadConnection();
+            timer.acquired();
+            Dialect dialect = dsMan.getDialect(con);
+            if (dialect.requiresTransactionForCursor() && con.getAutoCommit()) {
+                con.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            stmt = statementGenerator.getStatement(con, query, params);
+            stmt.setFetchSize(dsMan.getCurrentTransaction() == null ? dialect.getStreamingFetchSize(streamFetchSize) : streamFetchSize);
+            rs = stmt.executeQuery();
+            timer.executed();
+            RowMapper rowMapper = mapper.getRowMapper(rs, getEntityClass());
+            ChangeTracker tracker = rowMapper.getMetadata().isTrackChanges() ? changeTracker : null;
+            return new EntityCursor<>(dsMan, con, stmt, rs, rowMapper, restoreAutoCommit, timer, tracker);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            timer.finish();
+            dsMan.closeResultSet(rs);
+            dsMan.closeStatement(stmt);
+            if (restoreAutoCommit) {
+                dsMan.restoreAutoCommit(con, true);
+            }
+            dsMan.closeConnection(con);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            // the cursor keeps its query timeout but is not cancelled once open
+            deadline.close();
+        }
+    }
+
+    /**
+     * Runs the select and keeps the rows column by column in primitive arrays
+     * rather than as one entity per row. Rows are fetched with the streaming
+     * fetch size, as for openCursor.
+     */
+    public ColumnarResult<T> selectColumnar(String query, List params) throws SQLException {
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        boolean restoreAutoCommit = false;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.SELECT);
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = getReadConnection();
+            timer.acquired();
+            Dialect dialect = dsMan.getDialect(con);
+            if (dialect.requiresTransactionForCursor() && con.getAutoCommit()) {
+                con.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            stmt = statementGenerator.getStatement(con, query, params);
+            stmt.setFetchSize(dialect.getStreamingFetchSize(streamFetchSize));
+            rs = stmt.executeQuery();
+            timer.executed();
+            ColumnarResult<T> result = ColumnarResult.read(rs, mapper.getRowMapper(rs, getEntityClass()));
+            timer.addRows(result.size());
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeResultSet(rs);
+            dsMan.closeStatement(stmt);
+            if (restoreAutoCommit) {
+                dsMan.restoreAutoCommit(con, true);
+            }
+            dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+        }
+    }
+
+    public Stream<T> streamSelect(String query) throws SQLException {
+        return streamSelect(query, null);
+    }
+
+    public Stream<T> streamSelect(String query, List params) throws SQLException {
+        final EntityCursor<T> cursor = openCursor(query, params);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
     public int executeUpdate(String update, List params) throws SQLException {
         Connection con = null;
         PreparedStatement stmt = null;
         int result;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.EXECUTE);
+        DeadlineScope deadline = startDeadline();
         try {
             con = dsMan.getConnection();
+            timer.acquired();
             stmt = statementGenerator.getStatement(con, update, params);
             result = stmt.executeUpdate();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeStatement(stmt);
             dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            EntityCache cache = entityCacheManager.getCache(getEntityClass());
+            if (cache != null) {
+                cache.clear();
+                entitiesEvicted(cache, null);
+            }
+            tableWritten(QueryCache.getWrittenTable(update));
         }
         return result;
     }
 
     public T findEntityById(Object id) throws SQLException {
-        T result = null;
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        EntityCache cache = getReadableCache();
+        Object cacheKey = null;
+        long invalidationCount = 0;
+        if (cache != null) {
+            cacheKey = metadata.getPrimaryKey() != null ? metadata.getPrimaryKey().convert(id) : id;
+            Object cached = cache.get(cacheKey);
+            if (cached != null) {
+                return copyFromCache(metadata, cached);
+            }
+            invalidationCount = cache.getInvalidationCount(cacheKey);
+        }
+        T result = selectById(metadata, metadata.getColumns(), id, getEntityClass());
+        if (cache != null && result != null) {
+            cache.put(cacheKey, metadata.copy(result), invalidationCount);
+        }
+        return result;
+    }
+
+    /**
+     * Loads only the named columns and the primary key, leaving the other
+     * fields unset. Partial entities are never put in the entity cache.
+     */
+    public T findEntityById(Object id, String... columns) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        EntityCache cache = getReadableCache();
+        if (cache != null && metadata.getPrimaryKey() != null) {
+            Object cached = cache.get(metadata.getPrimaryKey().convert(id));
+            if (cached != null) {
+                return copyFromCache(metadata, cached);
+            }
+        }
+        return selectById(metadata, getSelectedColumns(metadata, columns), id, getEntityClass());
+    }
+
+    /**
+     * Loads the row with the given primary key into a projection class whose
+     * @ColumnName fields name a subset of this entity's columns, selecting
+     * only those columns.
+     */
+    public <P> P findProjectionById(Object id, Class<P> projectionClass) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (ColumnMetadata projected : EntityMetadata.forClass(projectionClass).getColumns()) {
+            columns.add(getMappedColumn(metadata, projected.getName()));
+        }
+        return selectById(metadata, columns, id, projectionClass);
+    }
+
+    private List<ColumnMetadata> getSelectedColumns(EntityMetadata metadata, String[] names) throws SQLException {
+        Set<ColumnMetadata> selected = new HashSet<>();
+        for (String name : names) {
+            selected.add(getMappedColumn(metadata, name));
+        }
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.isPrimaryKey() || selected.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private ColumnMetadata getMappedColumn(EntityMetadata metadata, String name) throws SQLException {
+        ColumnMetadata column = metadata.getColumn(name);
+        if (column == null) {
+            throw new SQLException("Column " + name + " is not mapped on " + metadata.getEntityClass().getName());
+        }
+        return column;
+    }
+
+    private <R> R selectById(EntityMetadata metadata, List<ColumnMetadata> columns, Object id, Class<R> resultClass) throws SQLException {
+        R result = null;
         Connection con = null;
         PreparedStatement stmt = null;
         ResultSet rs = null;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.FIND_BY_ID);
+        DeadlineScope deadline = startDeadline();
         try {
-            con = dsMan.getConnection();
-            stmt = statementGenerator.getFindByIdStatement(con, instantiateEntity(), id);
+            con = getReadConnection();
+            timer.acquired();
+            stmt = statementGenerator.getFindByIdStatement(con, metadata, columns, id);
             rs = stmt.executeQuery();
+            timer.executed();
             if (rs.next()) {
-                result = instantiateEntity();
-                mapper.mapResults(rs, result);
+                RowMapper rowMapper = mapper.getRowMapper(rs, resultClass);
+                result = (R) rowMapper.getMetadata().newInstance();
+                rowMapper.mapRow(rs, result);
+                if (rowMapper.getMetadata().isTrackChanges()) {
+                    changeTracker.snapshot(result);
+                }
+                timer.addRows(1);
             }
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeAll(rs, stmt, con);
+            timer.finish();
+            deadline.close();
         }
         return result;
     }
 
+    /**
+     * Loads the entities with the given primary keys using IN lists of at most
+     * inListSize ids. The map is keyed by primary key, in the order the ids
+     * were given, and leaves out ids that were not found.
+     */
+    public Map<Object, T> findEntitiesByIds(Collection<?> ids) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        EntityCache cache = getReadableCache();
+        Map<Object, T> found = new HashMap<>();
+        Set<Object> keys = new LinkedHashSet<>();
+        List<Object> missing = new ArrayList<>();
+        Map<Object, Long> invalidationCounts = new HashMap<>();
+        for (Object id : ids) {
+            Object key = pk.convert(id);
+            if (key == null || !keys.add(key)) {
+                continue;
+            }
+            Object cached = cache != null ? cache.get(key) : null;
+            if (cached != null) {
+                found.put(key, copyFromCache(metadata, cached));
+            } else {
+                missing.add(key);
+                if (cache != null) {
+                    invalidationCounts.put(key, cache.getInvalidationCount(key));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            Connection con = null;
+            QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.FIND_BY_IDS);
+            DeadlineScope deadline = startDeadline();
+            try {
+                con = getReadConnection();
+                timer.acquired();
+                for (int start = 0; start < missing.size(); start += inListSize) {
+                    List<Object> chunk = missing.subList(start, Math.min(start + inListSize, missing.size()));
+                    for (T entity : findChunkByIds(con, metadata, chunk)) {
+                        Object key = pk.getValue(entity);
+                        found.put(key, entity);
+                        timer.addRows(1);
+                        Long invalidationCount = invalidationCounts.get(key);
+                        if (cache != null && invalidationCount != null) {
+                            cache.put(key, metadata.copy(entity), invalidationCount);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                timer.failed(ex);
+                dsMan.checkDeadline(ex);
+                throw ex;
+            } finally {
+                dsMan.closeConnection(con);
+                timer.finish();
+                deadline.close();
+            }
+        }
+        Map<Object, T> results = new LinkedHashMap<>();
+        for (Object key : keys) {
+            T entity = found.get(key);
+            if (entity != null) {
+                results.put(key, entity);
+            }
+        }
+        return results;
+    }
+
+    private List<T> findChunkByIds(Connection con, EntityMetadata metadata, List<Object> ids) throws SQLException {
+        int paddedSize = statementGenerator.getPaddedInListSize(ids.size(), inListSize);
+        List<T> results = new ArrayList<>();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = statementGenerator.prepare(con, statementGenerator.getFindByIdsSql(metadata, paddedSize));
+            for (int i = 0; i < paddedSize; i++) {
+                PreparedStatementGenerator.setParameter(stmt, i + 1, ids.get(Math.min(i, ids.size() - 1)));
+            }
+            rs = stmt.executeQuery();
+            mapRows(rs, results);
+        } finally {
+            dsMan.closeResultSet(rs);
+            dsMan.closeStatement(stmt);
+        }
+        return results;
+    }
+
+    public Page<T> findPage(String pageToken, int pageSize) throws SQLException {
+        return findPage(null, pageToken, pageSize);
+    }
+
+    /**
+     * Reads the page following the one that returned pageToken, or the first
+     * page when it is null, ordered by the sort column, or the primary key
+     * when it is null, with the primary key breaking ties. Pages seek past the
+     * last row instead of using OFFSET, so deep pages cost the same as the
+     * first. The sort column must not contain nulls.
+     */
+    public Page<T> findPage(String sortColumn, String pageToken, int pageSize) throws SQLException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        ColumnMetadata sort = sortColumn == null ? null : getMappedColumn(metadata, sortColumn);
+        if (sort != null && sort.isPrimaryKey()) {
+            sort = null;
+        }
+        List<ColumnMetadata> keyColumns = sort == null ? Collections.singletonList(pk) : Arrays.asList(sort, pk);
+        String sortName = sort == null ? pk.getName() : sort.getName();
+        Object[] after = pageToken == null ? null : PageToken.decode(pageToken, sortName, keyColumns);
+        List<T> items = new ArrayList<>(Math.min(pageSize, 1024) + 1);
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.PAGE);
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = getReadConnection();
+            timer.acquired();
+            stmt = statementGenerator.prepare(con, statementGenerator.getPageSql(dsMan.getDialect(con), metadata, sort, after != null));
+            int parameterIndex = 1;
+            if (after != null) {
+                if (sort != null) {
+                    PreparedStatementGenerator.setParameter(stmt, parameterIndex++, after[0]);
+                    PreparedStatementGenerator.setParameter(stmt, parameterIndex++, after[0]);
+                }
+                PreparedStatementGenerator.setParameter(stmt, parameterIndex++, after[after.length - 1]);
+            }
+            // one extra row tells whether another page follows
+            stmt.setInt(parameterIndex, pageSize + 1);
+            rs = stmt.executeQuery();
+            timer.executed();
+            mapRows(rs, items);
+            timer.addRows(items.size());
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeAll(rs, stmt, con);
+            timer.finish();
+            deadline.close();
+        }
+        String nextPageToken = null;
+        if (items.size() > pageSize) {
+            items.remove(pageSize);
+            nextPageToken = PageToken.encode(sortName, keyColumns, items.get(pageSize - 1));
+        }
+        return new Page<>(items, nextPageToken);
+    }
+
+    /**
+     * Splits the span between the lowest and highest numeric primary key into
+     * at most parts ranges of equal width, for scanning a table in parallel.
+     * Gaps in the keys can make some ranges hold more rows than others.
+     */
+    public List<PrimaryKeyRange> splitPrimaryKeyRange(int parts) throws SQLException {
+        if (parts < 1) {
+            throw new IllegalArgumentException("parts must be at least 1");
+        }
+        EntityMetadata metadata = EntityMetadata.forClass(getEntityClass());
+        Object min;
+        Object max;
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = getReadConnection();
+            stmt = statementGenerator.prepare(con, statementGenerator.getKeyRangeSql(metadata));
+            rs = stmt.executeQuery();
+            rs.next();
+            min = rs.getObject(1);
+            max = rs.getObject(2);
+        } catch (SQLException ex) {
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeAll(rs, stmt, con);
+            deadline.close();
+        }
+        if (min == null || max == null) {
+            return new ArrayList<>();
+        }
+        if (!(min instanceof Number) || !(max instanceof Number)) {
+            throw new SQLException("Primary key ranges need a numeric primary key");
+        }
+        return PrimaryKeyRange.split(((Number) min).longValue(), ((Number) max).longValue(), parts);
+    }
+
+    /**
+     * Streams the rows whose primary key falls in the range, in key order.
+     */
+    public Stream<T> streamRange(PrimaryKeyRange range) throws SQLException {
+        String sql = statementGenerator.getRangeSql(EntityMetadata.forClass(getEntityClass()));
+        return streamSelect(sql, Arrays.asList(range.getFrom(), range.getTo()));
+    }
+
+    /**
+     * Splits the table into primary key ranges and streams each one on its own
+     * thread, passing every row to the callback, which must be thread safe.
+     * Each thread holds a connection, so no more threads are used than the
+     * pool's maximum size.
+     *
+     * @return the number of rows processed
+     */
+    public long scanInParallel(int threads, final EntityCallback<T> callback) throws SQLException {
+        List<PrimaryKeyRange> ranges = splitPrimaryKeyRange(Math.min(threads, Math.max(1, dsMan.getMaxActive())));
+        if (ranges.isEmpty()) {
+            return 0;
+        }
+        final AtomicLong processed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+        try {
+            List<Future<?>> scans = new ArrayList<>();
+            for (final PrimaryKeyRange range : ranges) {
+                scans.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws SQLException {
+                        try (EntityCursor<T> cursor = openCursor(
+                                statementGenerator.getRangeSql(EntityMetadata.forClass(getEntityClass())),
+                                Arrays.asList(range.getFrom(), range.getTo()))) {
+                            while (cursor.hasNext()) {
+                                callback.process(cursor.next());
+                                processed.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while scanning", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof UncheckedSQLException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return processed.get();
+    }
+
     public int insertOrUpdateEntity(T entity) throws SQLException {
-        if( exists(entity) ){
+        try {
+            return insertOrUpdate(entity);
+        } finally {
+            evictFromCache(entity);
+        }
+    }
+
+    private int insertOrUpdate(T entity) throws SQLException {
+        if (statementGenerator.getPrimaryKeyNameAndValue(entity) != null && dsMan.getDialect().supportsUpsert()) {
+            return upsertEntity(entity);
+        }
+        if( exists(entity, true) ){
             return updateEntity(entity);
         } else {
             try{
@@ -99,76 +767,509 @@ public class BaseDAO<T> {
         }
     }
 
+    private int upsertEntity(T entity) throws SQLException {
+        Connection con = null;
+        PreparedStatement stmt = null;
+        int result;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.UPSERT);
+        DeadlineScope deadline = startDeadline();
+        try {
+            con = dsMan.getConnection();
+            timer.acquired();
+            stmt = statementGenerator.getUpsertStatement(con, dsMan.getDialect(con), entity);
+            result = stmt.executeUpdate();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeStatement(stmt);
+            dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            evictFromCache(entity);
+            tableWritten();
+        }
+        changeTracker.snapshot(entity);
+        return result > 0 ? 1 : result;
+    }
+
+    public int insertOrUpdateAll(Collection<T> entities) throws SQLException {
+        try {
+            return insertOrUpdateBatches(entities);
+        } finally {
+            evictFromCache(entities);
+        }
+    }
+
+    private int insertOrUpdateBatches(Collection<T> entities) throws SQLException {
+        Dialect dialect = dsMan.getDialect();
+        if (!dialect.supportsUpsert()) {
+            int result = 0;
+            for (T entity : entities) {
+                result += insertOrUpdateEntity(entity);
+            }
+            return result;
+        }
+        Map<String, List<T>> batches = new LinkedHashMap<>();
+        for (T entity : entities) {
+            EntityMetadata metadata = EntityMetadata.forEntity(entity);
+            List<ColumnMetadata> columns = statementGenerator.getInsertColumns(entity);
+            String sql;
+            if (statementGenerator.getPrimaryKeyNameAndValue(entity) == null) {
+                sql = statementGenerator.getInsertSql(metadata, columns);
+            } else {
+                sql = statementGenerator.getUpsertSql(dialect, metadata, columns);
+            }
+            addToBatch(batches, sql, entity);
+        }
+        int result = executeBatches(batches, SqlOperation.UPSERT, true, new BatchBinder<T>() {
+            @Override
+            public void bind(PreparedStatement stmt, T entity) throws SQLException {
+                statementGenerator.bindColumns(stmt, statementGenerator.getInsertColumns(entity), entity, 1);
+            }
+        });
+        snapshot(entities);
+        return result;
+    }
+
     public int insertEntity(T entity) throws SQLException {
+        Transaction tx = dsMan.getCurrentTransaction();
+        if (tx != null && tx.isBatchingWrites()) {
+            // the query cache is invalidated when the transaction flushes
+            EntityMetadata metadata = EntityMetadata.forEntity(entity);
+            List<ColumnMetadata> columns = statementGenerator.getInsertColumns(entity);
+            PreparedStatement stmt = tx.prepareBatch(metadata, statementGenerator.getInsertSql(metadata, columns));
+            statementGenerator.bindColumns(stmt, columns, entity, 1);
+            tx.addBatch();
+            changeTracker.snapshot(entity);
+            return 1;
+        }
         Connection con = null;
         PreparedStatement stmt = null;
         int result;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.INSERT);
+        DeadlineScope deadline = startDeadline();
         try {
             con = dsMan.getConnection();
+            timer.acquired();
             stmt = statementGenerator.getInsertStatement(con, entity);
             result = stmt.executeUpdate();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeStatement(stmt);
             dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            tableWritten();
         }
+        changeTracker.snapshot(entity);
         return result;
     }
 
+    /**
+     * @deprecated truncates keys wider than an int, use insertEntityReturnKey
+     */
+    @Deprecated
     public int insertEntityReturnId(T entity) throws SQLException {
+        Object key = insertEntityReturnKey(entity);
+        return key instanceof Number ? ((Number) key).intValue() : 0;
+    }
+
+    /**
+     * Inserts the entity and reads the generated key in the same round trip.
+     * The key is converted to the type of the @PK field and written back to
+     * the entity.
+     */
+    public Object insertEntityReturnKey(T entity) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        ColumnMetadata pk = metadata.getPrimaryKey();
         Connection con = null;
         PreparedStatement stmt = null;
-        PreparedStatement getIdStmt = null;
         ResultSet rs = null;
-        int pkId = 0;
+        Object key = pk != null ? pk.getValue(entity) : null;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.INSERT);
+        DeadlineScope deadline = startDeadline();
         try {
             con = dsMan.getConnection();
-            stmt = statementGenerator.getInsertStatement(con, entity);
-            stmt.executeUpdate();
-            getIdStmt = con.prepareStatement("select LAST_INSERT_ID()");
-            rs = getIdStmt.executeQuery();
-            if (rs.next()) {
-                pkId = rs.getInt(1);
+            timer.acquired();
+            List<ColumnMetadata> columns = statementGenerator.getInsertColumns(entity);
+            stmt = statementGenerator.prepareReturningKeys(con, dsMan.getDialect(con), statementGenerator.getInsertSql(metadata, columns), pk);
+            statementGenerator.bindColumns(stmt, columns, entity, 1);
+            timer.addRows(stmt.executeUpdate());
+            rs = stmt.getGeneratedKeys();
+            timer.executed();
+            if (rs != null && rs.next()) {
+                key = rs.getObject(1);
+                if (pk != null) {
+                    key = pk.convert(key);
+                    pk.setValue(entity, key);
+                }
             }
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
-            dsMan.closeResultSet(rs);
-            dsMan.closeStatement(stmt);
-            dsMan.closeStatement(getIdStmt);
-            dsMan.closeConnection(con);
+            dsMan.closeAll(rs, stmt, con);
+            timer.finish();
+            deadline.close();
+            tableWritten();
         }
-        return pkId;
+        changeTracker.snapshot(entity);
+        return key;
     }
 
+    /**
+     * @return 0 without touching the database when the entity is a tracked
+     * instance of a @TrackChanges class and nothing changed since it was loaded
+     */
     public int updateEntity(T entity) throws SQLException {
+        List<ColumnMetadata> columns = statementGenerator.getUpdateColumns(entity);
+        if (columns.isEmpty() && changeTracker.isTracked(entity)) {
+            return 0;
+        }
+        Transaction tx = dsMan.getCurrentTransaction();
+        if (tx != null && tx.isBatchingWrites()) {
+            try {
+                EntityMetadata metadata = EntityMetadata.forEntity(entity);
+                PreparedStatement stmt = tx.prepareBatch(metadata, statementGenerator.getUpdateSql(metadata, columns));
+                statementGenerator.bindUpdateParameters(stmt, columns, entity);
+                tx.addBatch();
+                changeTracker.snapshot(entity);
+                return 1;
+            } finally {
+                evictFromCache(entity);
+            }
+        }
         Connection con = null;
         PreparedStatement stmt = null;
         int result;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.UPDATE);
+        DeadlineScope deadline = startDeadline();
         try {
             con = dsMan.getConnection();
-            stmt = statementGenerator.getUpdateStatement(con, entity);
+            timer.acquired();
+            stmt = statementGenerator.getUpdateStatement(con, entity, columns);
             result = stmt.executeUpdate();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeStatement(stmt);
             dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            evictFromCache(entity);
+            tableWritten();
         }
+        changeTracker.snapshot(entity);
         return result;
     }
 
     public int deleteByPrimaryKey(T entity) throws SQLException {
+        Transaction tx = dsMan.getCurrentTransaction();
+        if (tx != null && tx.isBatchingWrites()) {
+            try {
+                EntityMetadata metadata = EntityMetadata.forEntity(entity);
+                PreparedStatement stmt = tx.prepareBatch(metadata, statementGenerator.getDeleteSql(metadata));
+                statementGenerator.bindPrimaryKey(stmt, entity, 1);
+                tx.addBatch();
+                return 1;
+            } finally {
+                evictFromCache(entity);
+                changeTracker.forget(entity);
+            }
+        }
         Connection con = null;
         PreparedStatement stmt = null;
         int result;
+        QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.DELETE);
+        DeadlineScope deadline = startDeadline();
         try {
             con = dsMan.getConnection();
+            timer.acquired();
             stmt = statementGenerator.getDeleteStatement(con, entity);
             result = stmt.executeUpdate();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
         } finally {
             dsMan.closeStatement(stmt);
             dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            evictFromCache(entity);
+            changeTracker.forget(entity);
+            tableWritten();
+        }
+        return result;
+    }
+
+    public int insertAll(Collection<T> entities) throws SQLException {
+        Map<String, List<T>> batches = new LinkedHashMap<>();
+        for (T entity : entities) {
+            String sql = statementGenerator.getInsertSql(EntityMetadata.forEntity(entity), statementGenerator.getInsertColumns(entity));
+            addToBatch(batches, sql, entity);
         }
+        int result = executeBatches(batches, SqlOperation.INSERT, true, new BatchBinder<T>() {
+            @Override
+            public void bind(PreparedStatement stmt, T entity) throws SQLException {
+                statementGenerator.bindColumns(stmt, statementGenerator.getInsertColumns(entity), entity, 1);
+            }
+        });
+        snapshot(entities);
         return result;
     }
 
+    public int updateAll(Collection<T> entities) throws SQLException {
+        Map<String, List<T>> batches = new LinkedHashMap<>();
+        for (T entity : entities) {
+            List<ColumnMetadata> columns = statementGenerator.getUpdateColumns(entity);
+            if (columns.isEmpty() && changeTracker.isTracked(entity)) {
+                continue;
+            }
+            addToBatch(batches, statementGenerator.getUpdateSql(EntityMetadata.forEntity(entity), columns), entity);
+        }
+        try {
+            int result = executeBatches(batches, SqlOperation.UPDATE, false, new BatchBinder<T>() {
+                @Override
+                public void bind(PreparedStatement stmt, T entity) throws SQLException {
+                    statementGenerator.bindUpdateParameters(stmt, statementGenerator.getUpdateColumns(entity), entity);
+                }
+            });
+            for (List<T> batch : batches.values()) {
+                snapshot(batch);
+            }
+            return result;
+        } finally {
+            evictFromCache(entities);
+        }
+    }
+
+    public int deleteAll(Collection<T> entities) throws SQLException {
+        Map<String, List<T>> batches = new LinkedHashMap<>();
+        for (T entity : entities) {
+            addToBatch(batches, statementGenerator.getDeleteSql(EntityMetadata.forEntity(entity)), entity);
+        }
+        try {
+            return executeBatches(batches, SqlOperation.DELETE, false, new BatchBinder<T>() {
+                @Override
+                public void bind(PreparedStatement stmt, T entity) throws SQLException {
+                    statementGenerator.bindPrimaryKey(stmt, entity, 1);
+                }
+            });
+        } finally {
+            evictFromCache(entities);
+            for (T entity : entities) {
+                changeTracker.forget(entity);
+            }
+        }
+    }
+
+    private void snapshot(Collection<T> entities) {
+        for (T entity : entities) {
+            changeTracker.snapshot(entity);
+        }
+    }
+
+    private T copyFromCache(EntityMetadata metadata, Object cached) throws SQLException {
+        T copy = (T) metadata.copy(cached);
+        if (metadata.isTrackChanges()) {
+            changeTracker.snapshot(copy);
+        }
+        return copy;
+    }
+
+    private void evictFromCache(Collection<T> entities) {
+        for (T entity : entities) {
+            evictFromCache(entity);
+        }
+    }
+
+    private void evictFromCache(T entity) {
+        EntityCache cache = entityCacheManager.getCache(entity.getClass());
+        if (cache != null) {
+            ColumnMetadata pk = EntityMetadata.forEntity(entity).getPrimaryKey();
+            Object key = pk != null ? pk.getValue(entity) : null;
+            if (key != null) {
+                cache.invalidate(key);
+                entitiesEvicted(cache, key);
+            }
+        }
+    }
+
+    /**
+     * @return the entity cache, or null inside a transaction, whose reads may
+     * see rows other connections cannot see yet
+     */
+    private EntityCache getReadableCache() {
+        return dsMan.getCurrentTransaction() == null ? entityCacheManager.getCache(getEntityClass()) : null;
+    }
+
+    /**
+     * Inside a transaction the entity, or the whole cache when the key is
+     * null, is evicted again when it ends, in case another thread cached the
+     * old row before the commit.
+     */
+    private void entitiesEvicted(EntityCache cache, Object key) {
+        Transaction tx = dsMan.getCurrentTransaction();
+        if (tx != null) {
+            tx.entityEvicted(cache, key);
+        }
+    }
+
+    private DeadlineScope startDeadline() {
+        long timeout = timeoutMillis;
+        return timeout > 0 ? dsMan.withDeadline(timeout, TimeUnit.MILLISECONDS) : DeadlineScope.NONE;
+    }
+
+    private void tableWritten() {
+        tableWritten(EntityMetadata.forClass(getEntityClass()).getTableName());
+    }
+
+    /**
+     * Drops the cached queries that read the table, or all of them when the
+     * table is null. Inside a transaction they are dropped again when it ends,
+     * since other connections only see the write after the commit.
+     */
+    private void tableWritten(String table) {
+        queryCache.invalidate(table);
+        Transaction tx = dsMan.getCurrentTransaction();
+        if (tx != null) {
+            tx.tableWritten(table);
+        }
+    }
+
+    private void addToBatch(Map<String, List<T>> batches, String sql, T entity) {
+        List<T> batch = batches.get(sql);
+        if (batch == null) {
+            batch = new ArrayList<>();
+            batches.put(sql, batch);
+        }
+        batch.add(entity);
+    }
+
+    private int executeBatches(Map<String, List<T>> batches, SqlOperation operation, boolean returnKeys, BatchBinder<T> binder) throws SQLException {
+        if (batches.isEmpty()) {
+            return 0;
+        }
+        int result = 0;
+        QueryTimer timer = queryListeners.start(getEntityClass(), operation);
+        DeadlineScope deadline = startDeadline();
+        if (dsMan.getCurrentTransaction() != null) {
+            // the transaction owner commits or rolls back
+            try {
+                Connection con = dsMan.getConnection();
+                timer.acquired();
+                for (Map.Entry<String, List<T>> batch : batches.entrySet()) {
+                    result += executeBatch(con, batch.getKey(), batch.getValue(), returnKeys, binder);
+                }
+                timer.executed();
+                timer.addRows(result);
+            } catch (SQLException | RuntimeException ex) {
+                timer.failed(ex);
+                dsMan.checkDeadline(ex);
+                throw ex;
+            } finally {
+                timer.finish();
+                deadline.close();
+                tableWritten();
+            }
+            return result;
+        }
+        Connection con = null;
+        boolean autoCommit = true;
+        try {
+            con = dsMan.getConnection();
+            timer.acquired();
+            autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            for (Map.Entry<String, List<T>> batch : batches.entrySet()) {
+                result += executeBatch(con, batch.getKey(), batch.getValue(), returnKeys, binder);
+            }
+            con.commit();
+            timer.executed();
+            timer.addRows(result);
+        } catch (SQLException ex) {
+            timer.failed(ex);
+            dsMan.rollback(con);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } catch (RuntimeException | Error ex) {
+            // roll back before restoring autocommit, which would commit the batches already sent
+            timer.failed(ex);
+            dsMan.rollback(con);
+            throw ex;
+        } finally {
+            dsMan.restoreAutoCommit(con, autoCommit);
+            dsMan.closeConnection(con);
+            timer.finish();
+            deadline.close();
+            tableWritten();
+        }
+        return result;
+    }
+
+    private int executeBatch(Connection con, String sql, List<T> entities, boolean returnKeys, BatchBinder<T> binder) throws SQLException {
+        ColumnMetadata pk = EntityMetadata.forEntity(entities.get(0)).getPrimaryKey();
+        boolean readKeys = returnKeys && pk != null && pk.getValue(entities.get(0)) == null;
+        int result = 0;
+        PreparedStatement stmt = null;
+        try {
+            stmt = readKeys ? statementGenerator.prepareReturningKeys(con, dsMan.getDialect(con), sql, pk) : statementGenerator.prepare(con, sql);
+            for (int start = 0; start < entities.size(); start += batchSize) {
+                List<T> chunk = entities.subList(start, Math.min(start + batchSize, entities.size()));
+                for (T entity : chunk) {
+                    binder.bind(stmt, entity);
+                    stmt.addBatch();
+                }
+                for (int count : stmt.executeBatch()) {
+                    result += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+                }
+                if (readKeys) {
+                    readGeneratedKeys(stmt, pk, chunk);
+                }
+            }
+        } finally {
+            dsMan.closeStatement(stmt);
+        }
+        return result;
+    }
+
+    private void readGeneratedKeys(Statement stmt, ColumnMetadata pk, List<T> entities) throws SQLException {
+        ResultSet keys = null;
+        try {
+            keys = stmt.getGeneratedKeys();
+            for (T entity : entities) {
+                if (keys == null || !keys.next()) {
+                    break;
+                }
+                pk.setValue(entity, pk.convert(keys.getObject(1)));
+            }
+        } finally {
+            dsMan.closeResultSet(keys);
+        }
+    }
+
     public boolean exists(T entity) throws SQLException {
+        return exists(entity, false);
+    }
+
+    private boolean exists(T entity, boolean onPrimary) throws SQLException {
         AbstractMap.SimpleEntry keyValueMap = statementGenerator.getPrimaryKeyNameAndValue(entity);
         if (keyValueMap == null) {
             return false;
@@ -176,29 +1277,52 @@ public class BaseDAO<T> {
             Connection con = null;
             PreparedStatement stmt = null;
             ResultSet rs = null;
+            QueryTimer timer = queryListeners.start(getEntityClass(), SqlOperation.EXISTS);
+            DeadlineScope deadline = startDeadline();
             try {
-                con = dsMan.getConnection();
+                con = onPrimary ? dsMan.getConnection() : getReadConnection();
+                timer.acquired();
                 stmt = statementGenerator.getExistsStatement(con, entity);
                 rs = stmt.executeQuery();
+                timer.executed();
                 if (rs.next()) {
+                    timer.addRows(1);
                     if(rs.getInt("TOTAL") > 0){
                         return true;
                     }
                 }
+            } catch (SQLException | RuntimeException ex) {
+                timer.failed(ex);
+                dsMan.checkDeadline(ex);
+                throw ex;
             } finally {
                 dsMan.closeAll(rs, stmt, con);
+                timer.finish();
+                deadline.close();
             }
             return false;
         }
     }
 
-    public  T instantiateEntity() throws SQLException{
-        try {
-            return (T)((Class)((ParameterizedType)this.getClass().getGenericSuperclass()).getActualTypeArguments()[0]).newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            e.printStackTrace();
-            throw new SQLException("Invalid object type");
+    protected Connection getReadConnection() throws SQLException {
+        return readFromPrimary ? dsMan.getConnection() : dsMan.getReadConnection();
+    }
+
+    protected Class<T> getEntityClass() {
+        Class<T> clazz = entityClass;
+        if (clazz == null) {
+            clazz = (Class<T>) ((ParameterizedType) this.getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+            entityClass = clazz;
         }
+        return clazz;
+    }
+
+    private interface BatchBinder<T> {
 
+        void bind(PreparedStatement stmt, T entity) throws SQLException;
+    }
+
+    public  T instantiateEntity() throws SQLException{
+        return (T) EntityMetadata.forClass(getEntityClass()).newInstance();
     }
 }
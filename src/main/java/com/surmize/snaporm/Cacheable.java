@@ -0,0 +1,15 @@
+package com.surmize.snaporm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+    int maxSize() default 1000;
+
+    long ttlSeconds() default 300;
+}
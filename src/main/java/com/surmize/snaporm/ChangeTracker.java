@@ -0,0 +1,129 @@
+package com.surmize.snaporm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Column value snapshots of the loaded instances of @TrackChanges entities.
+ * Instances are held weakly and by identity, so a snapshot goes away with its
+ * entity and entities with their own equals() are still told apart.
+ */
+public class ChangeTracker {
+
+    private final ConcurrentMap<EntityReference, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    private ChangeTracker() {
+    }
+
+    public static ChangeTracker getInstance() {
+        return ChangeTrackerHolder.INSTANCE;
+    }
+
+    private static class ChangeTrackerHolder {
+        private static final ChangeTracker INSTANCE = new ChangeTracker();
+    }
+
+    /**
+     * Records the entity's current column values if its class is @TrackChanges.
+     */
+    public void snapshot(Object entity) {
+        EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        if (metadata.isTrackChanges()) {
+            purge();
+            List<ColumnMetadata> columns = metadata.getColumns();
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = copyOf(columns.get(i).getValue(entity));
+            }
+            snapshots.put(new EntityReference(entity, collected), values);
+        }
+    }
+
+    public boolean isTracked(Object entity) {
+        return snapshots.containsKey(new EntityReference(entity, null));
+    }
+
+    /**
+     * @return the non primary key columns whose value differs from the
+     * snapshot, or null if the entity has no snapshot
+     */
+    public List<ColumnMetadata> getChangedColumns(Object entity) {
+        Object[] values = snapshots.get(new EntityReference(entity, null));
+        if (values == null) {
+            return null;
+        }
+        List<ColumnMetadata> changed = new ArrayList<>();
+        for (ColumnMetadata column : EntityMetadata.forEntity(entity).getColumns()) {
+            if (!column.isPrimaryKey() && !Objects.deepEquals(values[column.getIndex()], column.getValue(entity))) {
+                changed.add(column);
+            }
+        }
+        return changed;
+    }
+
+    public void forget(Object entity) {
+        snapshots.remove(new EntityReference(entity, null));
+    }
+
+    public int size() {
+        purge();
+        return snapshots.size();
+    }
+
+    private void purge() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            snapshots.remove(reference);
+        }
+    }
+
+    private static Object copyOf(Object value) {
+        // mutable values are copied so changes made in place are still seen
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof char[]) {
+            return ((char[]) value).clone();
+        } else if (value instanceof Object[]) {
+            return Arrays.copyOf((Object[]) value, ((Object[]) value).length);
+        }
+        return value;
+    }
+
+    private static final class EntityReference extends WeakReference<Object> {
+
+        private final int hash;
+
+        EntityReference(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            this.hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EntityReference)) {
+                return false;
+            }
+            Object entity = get();
+            return entity != null && entity == ((EntityReference) obj).get();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.surmize.snaporm;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Types;
+import java.util.UUID;
+
+public class ColumnMetadata {
+
+    private final Field field;
+    private final String name;
+    private final int index;
+    private final boolean primaryKey;
+    private final ValueType valueType;
+    private final int sqlType;
+    private final FieldAccessor accessor;
+
+    ColumnMetadata(Field field, String name, int index, boolean primaryKey, FieldAccessor accessor) {
+        this.field = field;
+        this.name = name;
+        this.index = index;
+        this.primaryKey = primaryKey;
+        this.valueType = ValueType.of(field.getType());
+        this.sqlType = sqlTypeOf(field.getType(), valueType);
+        this.accessor = accessor;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isPrimaryKey() {
+        return primaryKey;
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    /**
+     * @return the java.sql.Types constant a null value of this column is bound
+     * as, or Types.NULL when the type is not known
+     */
+    public int getSqlType() {
+        return sqlType;
+    }
+
+    public boolean isPrimitive() {
+        return field.getType().isPrimitive();
+    }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    public Object getValue(Object entity) {
+        return accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        accessor.set(entity, value);
+    }
+
+    /**
+     * Converts a value read from the driver, such as a generated key, to this
+     * column's field type.
+     */
+    public Object convert(Object value) {
+        Class<?> type = getType();
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            switch (valueType) {
+                case INT:
+                    return number.intValue();
+                case LONG:
+                    return number.longValue();
+                case DOUBLE:
+                    return number.doubleValue();
+                case FLOAT:
+                    return number.floatValue();
+                default:
+                    break;
+            }
+            if (type.equals(Short.TYPE) || type.equals(Short.class)) {
+                return number.shortValue();
+            } else if (type.equals(BigInteger.class)) {
+                return new BigDecimal(number.toString()).toBigInteger();
+            } else if (type.equals(BigDecimal.class)) {
+                return new BigDecimal(number.toString());
+            }
+        }
+        if (type.equals(UUID.class)) {
+            if (value instanceof byte[] && ((byte[]) value).length == 16) {
+                ByteBuffer buffer = ByteBuffer.wrap((byte[]) value);
+                return new UUID(buffer.getLong(), buffer.getLong());
+            }
+            return UUID.fromString(value.toString());
+        }
+        if (valueType == ValueType.STRING) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    private static int sqlTypeOf(Class<?> type, ValueType valueType) {
+        switch (valueType) {
+            case INT:
+                return Types.INTEGER;
+            case LONG:
+                return Types.BIGINT;
+            case DOUBLE:
+                return Types.DOUBLE;
+            case FLOAT:
+                return Types.REAL;
+            case BOOLEAN:
+                return Types.BOOLEAN;
+            case STRING:
+                return Types.VARCHAR;
+            case LOCAL_DATE:
+                return Types.DATE;
+            case LOCAL_TIME:
+                return Types.TIME;
+            case DATE:
+            case LOCAL_DATE_TIME:
+            case INSTANT:
+                return Types.TIMESTAMP;
+            default:
+                break;
+        }
+        if (type.equals(Short.TYPE) || type.equals(Short.class)) {
+            return Types.SMALLINT;
+        } else if (type.equals(BigDecimal.class) || type.equals(BigInteger.class)) {
+            return Types.DECIMAL;
+        } else if (type.equals(byte[].class)) {
+            return Types.VARBINARY;
+        }
+        return Types.NULL;
+    }
+}
@@ -0,0 +1,413 @@
+package com.surmize.snaporm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rows of a query held column by column instead of as entities. The columns
+ * are the entity's @ColumnName fields found in the result set:
+ * int, long and boolean fields are stored in a long[], float and double
+ * fields in a double[], strings as int codes into a per-column dictionary,
+ * java.util.Date and LocalDate fields as epoch milliseconds and epoch days in
+ * a long[], and other types as objects. Nulls are kept in a bitmap per column.
+ *
+ * <pre>
+ * ColumnarResult&lt;Trade&gt; trades = tradeDao.selectColumnar("SELECT * FROM trades WHERE day = ?", params);
+ * int price = trades.getColumnIndex("price");
+ * int symbol = trades.getColumnIndex("symbol");
+ * ColumnarResult&lt;Trade&gt;.RowView row = trades.newRowView();
+ * while (row.next()) {
+ *     total.merge(row.getString(symbol), row.getDouble(price), Double::sum);
+ * }
+ * </pre>
+ */
+public class ColumnarResult<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private enum Storage {
+        LONG, DOUBLE, STRING, OBJECT
+    }
+
+    private final EntityMetadata metadata;
+    private final ColumnMetadata[] columns;
+    private final Storage[] storage;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] codes;
+    private final String[][] dictionaries;
+    private final Object[][] objects;
+    private final BitSet[] nulls;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private int size;
+
+    private ColumnarResult(EntityMetadata metadata, ColumnMetadata[] columns) {
+        this.metadata = metadata;
+        this.columns = columns;
+        storage = new Storage[columns.length];
+        longs = new long[columns.length][];
+        doubles = new double[columns.length][];
+        codes = new int[columns.length][];
+        dictionaries = new String[columns.length][];
+        objects = new Object[columns.length][];
+        nulls = new BitSet[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            storage[i] = getStorage(columns[i].getValueType());
+            nulls[i] = new BitSet();
+            columnIndexes.put(columns[i].getName().toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    private static Storage getStorage(ValueType type) {
+        switch (type) {
+            case INT:
+            case LONG:
+            case BOOLEAN:
+            case DATE:
+            case LOCAL_DATE:
+                return Storage.LONG;
+            case DOUBLE:
+            case FLOAT:
+                return Storage.DOUBLE;
+            case STRING:
+                return Storage.STRING;
+            default:
+                return Storage.OBJECT;
+        }
+    }
+
+    /**
+     * Reads every remaining row of the result set.
+     */
+    static <T> ColumnarResult<T> read(ResultSet rs, RowMapper rowMapper) throws SQLException {
+        ColumnMetadata[] columns = rowMapper.getMappedColumns();
+        int[] indexes = rowMapper.getColumnIndexes();
+        ColumnarResult<T> result = new ColumnarResult<>(rowMapper.getMetadata(), columns);
+        List<Map<String, Integer>> codesByValue = new ArrayList<>(columns.length);
+        List<List<String>> values = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            codesByValue.add(result.storage[i] == Storage.STRING ? new HashMap<String, Integer>() : null);
+            values.add(result.storage[i] == Storage.STRING ? new ArrayList<String>() : null);
+        }
+        int capacity = 0;
+        int row = 0;
+        while (rs.next()) {
+            if (row == capacity) {
+                capacity = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+                result.resize(capacity);
+            }
+            for (int i = 0; i < columns.length; i++) {
+                result.readColumn(rs, indexes[i], i, row, codesByValue.get(i), values.get(i));
+            }
+            row++;
+        }
+        result.size = row;
+        result.resize(row);
+        for (int i = 0; i < columns.length; i++) {
+            if (values.get(i) != null) {
+                result.dictionaries[i] = values.get(i).toArray(new String[values.get(i).size()]);
+            }
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        for (int i = 0; i < columns.length; i++) {
+            switch (storage[i]) {
+                case LONG:
+                    longs[i] = longs[i] == null ? new long[capacity] : Arrays.copyOf(longs[i], capacity);
+                    break;
+                case DOUBLE:
+                    doubles[i] = doubles[i] == null ? new double[capacity] : Arrays.copyOf(doubles[i], capacity);
+                    break;
+                case STRING:
+                    codes[i] = codes[i] == null ? new int[capacity] : Arrays.copyOf(codes[i], capacity);
+                    break;
+                default:
+                    objects[i] = objects[i] == null ? new Object[capacity] : Arrays.copyOf(objects[i], capacity);
+                    break;
+            }
+        }
+    }
+
+    private void readColumn(ResultSet rs, int index, int column, int row,
+            Map<String, Integer> codesByValue, List<String> values) throws SQLException {
+        boolean isNull;
+        switch (columns[column].getValueType()) {
+            case INT:
+            case LONG:
+                longs[column][row] = rs.getLong(index);
+                isNull = rs.wasNull();
+                break;
+            case BOOLEAN:
+                longs[column][row] = rs.getBoolean(index) ? 1 : 0;
+                isNull = rs.wasNull();
+                break;
+            case DOUBLE:
+            case FLOAT:
+                doubles[column][row] = rs.getDouble(index);
+                isNull = rs.wasNull();
+                break;
+            case DATE:
+                java.sql.Date date = rs.getDate(index);
+                isNull = date == null;
+                longs[column][row] = isNull ? 0 : date.getTime();
+                break;
+            case LOCAL_DATE:
+                java.sql.Date localDate = rs.getDate(index);
+                isNull = localDate == null;
+                longs[column][row] = isNull ? 0 : localDate.toLocalDate().toEpochDay();
+                break;
+            case STRING:
+                String value = rs.getString(index);
+                isNull = value == null;
+                if (isNull) {
+                    codes[column][row] = -1;
+                } else {
+                    Integer code = codesByValue.get(value);
+                    if (code == null) {
+                        code = values.size();
+                        codesByValue.put(value, code);
+                        values.add(value);
+                    }
+                    codes[column][row] = code;
+                }
+                break;
+            case LOCAL_DATE_TIME:
+                Timestamp timestamp = rs.getTimestamp(index);
+                isNull = timestamp == null;
+                objects[column][row] = isNull ? null : timestamp.toLocalDateTime();
+                break;
+            case LOCAL_TIME:
+                Time time = rs.getTime(index);
+                isNull = time == null;
+                objects[column][row] = isNull ? null : time.toLocalTime();
+                break;
+            case INSTANT:
+                Timestamp instant = rs.getTimestamp(index);
+                isNull = instant == null;
+                objects[column][row] = isNull ? null : instant.toInstant();
+                break;
+            default:
+                objects[column][row] = rs.getObject(index);
+                isNull = objects[column][row] == null;
+                break;
+        }
+        if (isNull) {
+            nulls[column].set(row);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return the position of the column, or -1 if the entity does not map
+     * it or the result set did not contain it
+     */
+    public int getColumnIndex(String columnName) {
+        Integer index = columnIndexes.get(columnName.toLowerCase(Locale.ROOT));
+        return index == null ? -1 : index;
+    }
+
+    public ColumnMetadata getColumn(int column) {
+        return columns[column];
+    }
+
+    /**
+     * @return the values of an int, long, boolean (0 or 1), java.util.Date
+     * (epoch milliseconds) or LocalDate (epoch days) column, one per row
+     */
+    public long[] getLongs(int column) {
+        return checkStorage(column, Storage.LONG, longs);
+    }
+
+    /**
+     * @return the values of a float or double column, one per row
+     */
+    public double[] getDoubles(int column) {
+        return checkStorage(column, Storage.DOUBLE, doubles);
+    }
+
+    /**
+     * @return the dictionary codes of a String column, one per row, -1 for null
+     */
+    public int[] getStringCodes(int column) {
+        return checkStorage(column, Storage.STRING, codes);
+    }
+
+    /**
+     * @return the distinct values of a String column, indexed by code
+     */
+    public List<String> getDictionary(int column) {
+        checkStorage(column, Storage.STRING, codes);
+        return Collections.unmodifiableList(Arrays.asList(dictionaries[column]));
+    }
+
+    public boolean isNull(int row, int column) {
+        return nulls[column].get(row);
+    }
+
+    /**
+     * @return the value as the entity field would hold it, boxed
+     */
+    public Object getObject(int row, int column) {
+        return nulls[column].get(row) ? null : getValue(row, column);
+    }
+
+    private Object getValue(int row, int column) {
+        switch (columns[column].getValueType()) {
+            case INT:
+                return (int) longs[column][row];
+            case LONG:
+                return longs[column][row];
+            case BOOLEAN:
+                return longs[column][row] != 0;
+            case DOUBLE:
+                return doubles[column][row];
+            case FLOAT:
+                return (float) doubles[column][row];
+            case DATE:
+                return new java.sql.Date(longs[column][row]);
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(longs[column][row]);
+            case STRING:
+                return dictionaries[column][codes[column][row]];
+            default:
+                return objects[column][row];
+        }
+    }
+
+    /**
+     * @return a new entity with the mapped columns of the row
+     */
+    public T toEntity(int row) throws SQLException {
+        T entity = (T) metadata.newInstance();
+        for (int i = 0; i < columns.length; i++) {
+            if (!nulls[i].get(row) || RowMapper.readsNullAsZero(columns[i].getValueType())) {
+                // null numbers and booleans are stored as 0 or false
+                columns[i].setValue(entity, getValue(row, i));
+            } else if (!columns[i].isPrimitive()) {
+                columns[i].setValue(entity, null);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * @return a cursor over the rows, positioned before the first one. One
+     * view can be reused for any number of rows without allocating.
+     */
+    public RowView newRowView() {
+        return new RowView();
+    }
+
+    private <A> A checkStorage(int column, Storage expected, A[] arrays) {
+        if (storage[column] != expected) {
+            throw new IllegalArgumentException("Column " + columns[column].getName() + " of type "
+                    + columns[column].getType().getSimpleName() + " is not stored as " + expected.name().toLowerCase(Locale.ROOT));
+        }
+        return arrays[column];
+    }
+
+    /**
+     * Flyweight over one row of the result at a time.
+     */
+    public class RowView {
+
+        private int row = -1;
+
+        public boolean next() {
+            if (row + 1 >= size) {
+                row = size;
+                return false;
+            }
+            row++;
+            return true;
+        }
+
+        public void moveTo(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            this.row = row;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public boolean isNull(int column) {
+            return nulls[column].get(row);
+        }
+
+        /**
+         * @return the value of a long column, or the truncated value of a
+         * double column; 0 for null
+         */
+        public long getLong(int column) {
+            if (storage[column] == Storage.DOUBLE) {
+                return (long) doubles[column][row];
+            }
+            return getLongs(column)[row];
+        }
+
+        public int getInt(int column) {
+            return (int) getLong(column);
+        }
+
+        public boolean getBoolean(int column) {
+            return getLong(column) != 0;
+        }
+
+        /**
+         * @return the value of a double or long column; 0 for null
+         */
+        public double getDouble(int column) {
+            if (storage[column] == Storage.LONG) {
+                return longs[column][row];
+            }
+            return getDoubles(column)[row];
+        }
+
+        public String getString(int column) {
+            if (storage[column] != Storage.STRING) {
+                Object value = getObject(column);
+                return value == null ? null : value.toString();
+            }
+            int code = codes[column][row];
+            return code < 0 ? null : dictionaries[column][code];
+        }
+
+        /**
+         * @return the dictionary code of a String column, -1 for null
+         */
+        public int getStringCode(int column) {
+            return getStringCodes(column)[row];
+        }
+
+        public Object getObject(int column) {
+            return ColumnarResult.this.getObject(row, column);
+        }
+
+        public T toEntity() throws SQLException {
+            return ColumnarResult.this.toEntity(row);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * A pool of connections to one database, configured from the cp.* settings
+ * of a PoolConfig. Select the implementation with cp.PoolType: tomcat (the
+ * default), hikari, or the name of a class with a PoolConfig constructor.
+ */
+public interface ConnectionPool {
+
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Borrows a connection, waiting at most timeoutMillis for one to be
+     * returned. Pools that cannot shorten their wait use cp.MaxWait.
+     */
+    default Connection getConnection(long timeoutMillis) throws SQLException {
+        return getConnection();
+    }
+
+    DataSource getDataSource();
+
+    /**
+     * Opens the initial connections now instead of on first use.
+     */
+    void warmUp() throws SQLException;
+
+    int getMaxActive();
+
+    PoolMetrics getMetrics();
+
+    void close();
+}
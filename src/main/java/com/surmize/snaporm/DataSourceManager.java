@@ -4,36 +4,359 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import org.apache.tomcat.jdbc.pool.DataSource;
-import org.apache.tomcat.jdbc.pool.PoolProperties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
 
 public class DataSourceManager {
 
-    private DataSource datasource;
+    private volatile ConnectionPool pool;
+    private volatile List<ConnectionPool> replicas = Collections.emptyList();
+    private volatile ReplicaBalancing replicaBalancing = ReplicaBalancing.ROUND_ROBIN;
+    private final AtomicInteger replicaSequence = new AtomicInteger();
+    private volatile Dialect dialect;
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+    private final ThreadLocal<int[]> primaryReads = new ThreadLocal<>();
+    private final ThreadLocal<DeadlineScope> deadlines = new ThreadLocal<>();
+    private volatile boolean deadlinesUsed;
+    private volatile Semaphore asyncPermits;
 
     private DataSourceManager() {
+        if(PropertyManager.getBooleanSetting("cp.EagerInit", false)){
+            try{
+                warmUp();
+            }catch(SQLException ex){
+                Logger.getLogger(DataSourceManager.class.getName()).log(Level.WARNING, "Connection pool warm-up failed", ex);
+            }
+        }
     }
 
     public static DataSourceManager getInstance() {
         return DatasourceManagerHolder.INSTANCE;
     }
 
+    /**
+     * Builds the pool and opens its initial connections. Call it from
+     * application startup: the manager is otherwise created, and cp.EagerInit
+     * applied, only by the first getInstance().
+     */
+    public static DataSourceManager init() throws SQLException {
+        DataSourceManager manager = getInstance();
+        manager.warmUp();
+        return manager;
+    }
+
     private static class DatasourceManagerHolder {
         private static final DataSourceManager INSTANCE = new DataSourceManager();
     }
     
     public DataSource getDataSource(){
-        if( datasource == null){
-            initializeDatasource();
+        return getPool().getDataSource();
+    }
+
+    public ConnectionPool getPool(){
+        ConnectionPool p = pool;
+        if( p == null){
+            synchronized(this){
+                p = pool;
+                if( p == null){
+                    PoolConfig config = new PoolConfig("snaporm", "cp.");
+                    replicas = createReplicas(config);
+                    replicaBalancing = ReplicaBalancing.valueOf(
+                            config.getSetting("ReplicaBalancing", "ROUND_ROBIN").trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+                    p = createPool(config);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Builds the pool and opens its initial connections so the first requests
+     * do not pay for them. Called by init(), and when the manager is created
+     * by the first getInstance() if cp.EagerInit is true.
+     */
+    public void warmUp() throws SQLException{
+        getPool().warmUp();
+        for(ConnectionPool replica : replicas){
+            replica.warmUp();
+        }
+    }
+
+    public PoolMetrics getPoolMetrics(){
+        return getPool().getMetrics();
+    }
+
+    /**
+     * @return metrics of each replica configured with cp.Replicas, by name
+     */
+    public Map<String, PoolMetrics> getReplicaMetrics(){
+        getPool();
+        Map<String, PoolMetrics> metrics = new LinkedHashMap<>();
+        for(ConnectionPool replica : replicas){
+            PoolMetrics m = replica.getMetrics();
+            metrics.put(m.getName(), m);
+        }
+        return metrics;
+    }
+
+    /**
+     * Closes the pool; the next connection request builds a new one from the
+     * current settings.
+     */
+    public synchronized void shutdown(){
+        ConnectionPool p = pool;
+        List<ConnectionPool> r = replicas;
+        pool = null;
+        replicas = Collections.emptyList();
+        dialect = null;
+        asyncPermits = null;
+        if(p != null){
+            p.close();
+        }
+        for(ConnectionPool replica : r){
+            replica.close();
         }
-        return datasource;
     }
     
+    /**
+     * @return the connection of the thread's transaction if one is active,
+     * with its queued writes flushed, otherwise a connection from the pool
+     */
     public Connection getConnection() throws SQLException{
-        return getDataSource().getConnection(); 
+        Transaction tx = currentTransaction.get();
+        if(tx != null){
+            tx.flush();
+            return tx.getConnection();
+        }
+        return getPooledConnection();
+    }
+
+    /**
+     * @return a connection for a read that may be served by a replica. Reads
+     * stay on the primary inside a transaction, inside readFromPrimary(), when
+     * no replicas are configured, or when the chosen replica cannot be reached.
+     */
+    public Connection getReadConnection() throws SQLException{
+        if(currentTransaction.get() != null || isReadingFromPrimary()){
+            return getConnection();
+        }
+        ConnectionPool primary = getPool();
+        List<ConnectionPool> r = replicas;
+        if(r.isEmpty()){
+            return borrow(primary);
+        }
+        ConnectionPool replica = replicaBalancing.choose(r, replicaSequence.getAndIncrement());
+        try{
+            return borrow(replica);
+        }catch(DeadlineExceededException ex){
+            throw ex;
+        }catch(SQLException ex){
+            Logger.getLogger(DataSourceManager.class.getName()).log(Level.WARNING,
+                    "Replica " + replica.getMetrics().getName() + " unavailable, reading from primary", ex);
+            return borrow(primary);
+        }
+    }
+
+    /**
+     * Sends the thread's reads to the primary until the returned scope is
+     * closed, for reads that must see the thread's own writes.
+     */
+    public PrimaryReadScope readFromPrimary(){
+        return new PrimaryReadScope(primaryReads);
+    }
+
+    public boolean isReadingFromPrimary(){
+        int[] depth = primaryReads.get();
+        return depth != null && depth[0] > 0;
+    }
+
+    /**
+     * Gives the DAO calls made on the thread until the returned scope is
+     * closed a deadline, for pool waits and statements together.
+     */
+    public DeadlineScope withDeadline(long timeout, TimeUnit unit){
+        deadlinesUsed = true;
+        return new DeadlineScope(deadlines, timeout, unit);
+    }
+
+    /**
+     * @return the innermost open deadline of the thread, or null
+     */
+    public DeadlineScope getDeadline(){
+        return deadlines.get();
+    }
+
+    /**
+     * Throws DeadlineExceededException, caused by the failure, when the
+     * thread's deadline has passed.
+     */
+    public void checkDeadline(Exception failure) throws DeadlineExceededException{
+        DeadlineScope deadline = deadlines.get();
+        if(deadline != null && deadline.isExpired() && !(failure instanceof DeadlineExceededException)){
+            throw deadline.exceeded(failure);
+        }
+    }
+
+    /**
+     * Sets the statement's query timeout from the thread's deadline and
+     * cancels it when the deadline passes.
+     */
+    void applyDeadline(Statement s) throws SQLException{
+        DeadlineScope deadline = deadlines.get();
+        if(deadline != null){
+            deadline.watch(s);
+        }
+    }
+
+    /**
+     * Stops watching the statement and clears its query timeout, so statements
+     * cached by the driver or pool do not keep it.
+     */
+    void clearDeadline(Statement s){
+        if(!deadlinesUsed){
+            return;
+        }
+        DeadlineScope deadline = deadlines.get();
+        if(deadline != null){
+            deadline.unwatch(s);
+        }
+        try{
+            if(s.getQueryTimeout() != 0){
+                s.setQueryTimeout(0);
+            }
+        }catch(Exception ignore){}
+    }
+
+    Connection getPooledConnection() throws SQLException{
+        return borrow(getPool());
+    }
+
+    private Connection borrow(ConnectionPool p) throws SQLException{
+        DeadlineScope deadline = deadlines.get();
+        if(deadline == null){
+            return p.getConnection();
+        }
+        long remaining = deadline.getRemaining(TimeUnit.MILLISECONDS);
+        if(remaining <= 0){
+            throw deadline.exceeded(null);
+        }
+        try{
+            return p.getConnection(remaining);
+        }catch(SQLException ex){
+            checkDeadline(ex);
+            throw ex;
+        }
+    }
+
+    void closePooledConnection(Connection c){
+        if(c != null){
+            try{
+                c.close();
+            }catch(Exception ignore){}
+        }
+    }
+
+    public int getMaxActive(){
+        return getPool().getMaxActive();
+    }
+
+    /**
+     * @return the permits shared by every AsyncBaseDAO, one per connection
+     * the pool can hand out, so together they never queue on the pool
+     */
+    Semaphore getAsyncPermits(){
+        Semaphore permits = asyncPermits;
+        if(permits == null){
+            synchronized(this){
+                permits = asyncPermits;
+                if(permits == null){
+                    permits = new Semaphore(Math.max(1, getMaxActive()), true);
+                    asyncPermits = permits;
+                }
+            }
+        }
+        return permits;
+    }
+
+    public Transaction beginTransaction() throws SQLException{
+        return beginTransaction(false);
+    }
+
+    public Transaction beginTransaction(boolean batchWrites) throws SQLException{
+        if(currentTransaction.get() != null){
+            throw new SQLException("A transaction is already active on this thread");
+        }
+        Transaction tx = new Transaction(this, batchWrites, PropertyManager.getIntegerSetting("snaporm.BatchSize", 500));
+        currentTransaction.set(tx);
+        return tx;
+    }
+
+    public Transaction getCurrentTransaction(){
+        return currentTransaction.get();
+    }
+
+    void endTransaction(Transaction tx){
+        if(currentTransaction.get() == tx){
+            currentTransaction.remove();
+        }
+    }
+
+    /**
+     * Runs the callback in a new transaction, committing when it returns and
+     * rolling back when it throws.
+     */
+    public <R> R inTransaction(TransactionCallback<R> callback) throws SQLException{
+        try(Transaction tx = beginTransaction()){
+            R result = callback.doInTransaction(tx);
+            tx.commit();
+            return result;
+        }
+    }
+
+    public Dialect getDialect() throws SQLException{
+        Dialect d = dialect;
+        if(d == null){
+            Connection con = null;
+            try{
+                con = getConnection();
+                d = getDialect(con);
+            }finally{
+                closeConnection(con);
+            }
+        }
+        return d;
+    }
+
+    public Dialect getDialect(Connection con) throws SQLException{
+        Dialect d = dialect;
+        if(d == null){
+            String configured = PropertyManager.getSetting("cp.Dialect");
+            if(configured != null){
+                d = Dialect.valueOf(configured.trim().toUpperCase(Locale.ROOT));
+            }else{
+                d = Dialect.fromProductName(con.getMetaData().getDatabaseProductName());
+            }
+            dialect = d;
+        }
+        return d;
     }
     
     public void closeConnection(Connection c){
+        Transaction tx = currentTransaction.get();
+        if(tx != null && tx.owns(c)){
+            return;
+        }
         if(c != null){
             try{
                 c.close();
@@ -51,40 +374,62 @@ public class DataSourceManager {
     
     public void closeStatement(Statement s){
         if(s != null){
+            clearDeadline(s);
             try{
                 s.close();
             }catch(Exception ignore){}
         }
     }
     
+    public void rollback(Connection c){
+        if(c != null){
+            try{
+                c.rollback();
+            }catch(Exception ignore){}
+        }
+    }
+
+    public void restoreAutoCommit(Connection c, boolean autoCommit){
+        if(c != null){
+            try{
+                c.setAutoCommit(autoCommit);
+            }catch(Exception ignore){}
+        }
+    }
+
     public void closeAll(ResultSet rs, Statement s, Connection c ){
         closeResultSet(rs);
         closeStatement(s);
         closeConnection(c);
     }
     
-    private void initializeDatasource() {
-        PoolProperties p = new PoolProperties();
-        p.setUrl( PropertyManager.getSetting("cp.Url") );
-        p.setDriverClassName( PropertyManager.getSetting("cp.DriverClassName") );
-        p.setUsername( PropertyManager.getSetting("cp.Username") );
-        p.setPassword( PropertyManager.getSetting("cp.Password") );
-        p.setJmxEnabled(false);
-        p.setTestWhileIdle(false);
-        p.setTestOnBorrow(true);
-        p.setValidationQuery( PropertyManager.getSetting("cp.ValidationQuery") );
-        p.setTestOnReturn(false);
-        p.setValidationInterval(30000);
-        p.setTimeBetweenEvictionRunsMillis(30000);
-        p.setMaxActive(  PropertyManager.getIntegerSetting("cp.MaxActive")  );
-        p.setInitialSize( PropertyManager.getIntegerSetting("cp.InitialSize") );
-        p.setMaxWait( PropertyManager.getIntegerSetting("cp.MaxWait") );
-        p.setRemoveAbandonedTimeout(60);
-        p.setMinEvictableIdleTimeMillis(30000);
-        p.setMinIdle(10);
-        p.setLogAbandoned(true);
-        p.setRemoveAbandoned(true);
-        datasource = new DataSource();
-        datasource.setPoolProperties(p);
+    private static List<ConnectionPool> createReplicas(PoolConfig primary) {
+        String names = primary.getSetting("Replicas");
+        if(names == null || names.trim().isEmpty()){
+            return Collections.emptyList();
+        }
+        List<ConnectionPool> pools = new ArrayList<>();
+        for(String name : names.split(",")){
+            name = name.trim();
+            if(!name.isEmpty()){
+                pools.add(createPool(new PoolConfig(primary.getName() + "-" + name, primary.getPrefix() + name + ".", primary)));
+            }
+        }
+        return Collections.unmodifiableList(pools);
+    }
+
+    static ConnectionPool createPool(PoolConfig config) {
+        String type = config.getPoolType().trim();
+        if("tomcat".equalsIgnoreCase(type)){
+            return new TomcatConnectionPool(config);
+        }
+        if("hikari".equalsIgnoreCase(type)){
+            return new HikariConnectionPool(config);
+        }
+        try{
+            return (ConnectionPool) Class.forName(type).getConstructor(PoolConfig.class).newInstance(config);
+        }catch(ReflectiveOperationException | ClassCastException ex){
+            throw new IllegalStateException("Cannot create connection pool " + type, ex);
+        }
     }
 }
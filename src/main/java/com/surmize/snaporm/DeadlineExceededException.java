@@ -0,0 +1,20 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLTimeoutException;
+
+/**
+ * Thrown when a DAO call runs past the deadline of its DeadlineScope or the
+ * timeout of its DAO, while waiting for a connection or for a statement.
+ */
+public class DeadlineExceededException extends SQLTimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String reason) {
+        super(reason, "HYT00");
+    }
+
+    public DeadlineExceededException(String reason, Throwable cause) {
+        super(reason, "HYT00", cause);
+    }
+}
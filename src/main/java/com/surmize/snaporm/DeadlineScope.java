@@ -0,0 +1,139 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * While open, DAO calls made on the thread must finish before the deadline.
+ * Borrowing a connection waits at most until then, statements get a query
+ * timeout of the time left and are cancelled when it runs out, and a call
+ * that misses the deadline throws DeadlineExceededException. Scopes can be
+ * nested; the earliest deadline applies.
+ * <pre>
+ * try (DeadlineScope scope = DataSourceManager.getInstance().withDeadline(2, TimeUnit.SECONDS)) {
+ *     dao.executeSelect(query, params);
+ * }
+ * </pre>
+ */
+public class DeadlineScope implements AutoCloseable {
+
+    static final DeadlineScope NONE = new DeadlineScope();
+
+    private final ThreadLocal<DeadlineScope> current;
+    private final DeadlineScope previous;
+    private final long deadlineNanos;
+    private volatile Statement running;
+    private ScheduledFuture<?> cancelTask;
+    private boolean closed;
+
+    private DeadlineScope() {
+        current = null;
+        previous = null;
+        deadlineNanos = 0;
+        closed = true;
+    }
+
+    DeadlineScope(ThreadLocal<DeadlineScope> current, long timeout, TimeUnit unit) {
+        this.current = current;
+        this.previous = current.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.deadlineNanos = previous != null && previous.deadlineNanos - deadline < 0 ? previous.deadlineNanos : deadline;
+        current.set(this);
+    }
+
+    public long getRemaining(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    DeadlineExceededException exceeded(Throwable cause) {
+        String reason = "Deadline exceeded";
+        if (cause != null && cause.getMessage() != null) {
+            reason += ": " + cause.getMessage();
+        }
+        return new DeadlineExceededException(reason, cause);
+    }
+
+    /**
+     * Sets the statement's query timeout to the time left, rounded up to a
+     * second, and cancels it if it is still running at the deadline.
+     */
+    void watch(Statement stmt) throws SQLException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw exceeded(null);
+        }
+        stmt.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remaining + 999999999L) / 1000000000L));
+        running = stmt;
+        if (cancelTask == null) {
+            cancelTask = CancelTimerHolder.TIMER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancelRunning();
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void unwatch(Statement stmt) {
+        if (running == stmt) {
+            running = null;
+        }
+    }
+
+    private void cancelRunning() {
+        Statement stmt = running;
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException | RuntimeException ex) {
+                Logger.getLogger(DeadlineScope.class.getName()).log(Level.FINE, "Cannot cancel statement", ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (cancelTask != null) {
+            cancelTask.cancel(false);
+        }
+        running = null;
+        if (current.get() == this) {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    private static class CancelTimerHolder {
+        private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+        private static ScheduledThreadPoolExecutor createTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "snaporm-deadline");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.surmize.snaporm;
+
+import java.util.Locale;
+
+public enum Dialect {
+
+    MYSQL, POSTGRESQL, H2, ORACLE, SQLSERVER, GENERIC;
+
+    public static Dialect fromProductName(String productName) {
+        if (productName == null) {
+            return GENERIC;
+        }
+        String name = productName.toLowerCase(Locale.ROOT);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        } else if (name.contains("postgres")) {
+            return POSTGRESQL;
+        } else if (name.equals("h2")) {
+            return H2;
+        } else if (name.contains("oracle")) {
+            return ORACLE;
+        } else if (name.contains("microsoft sql server")) {
+            return SQLSERVER;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Fetch size that makes the driver stream rows instead of buffering the
+     * whole result set. MySQL only streams with Integer.MIN_VALUE.
+     */
+    public int getStreamingFetchSize(int fetchSize) {
+        return this == MYSQL ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    /**
+     * PostgreSQL ignores the fetch size, and buffers everything, unless the
+     * connection is out of autocommit mode.
+     */
+    public boolean requiresTransactionForCursor() {
+        return this == POSTGRESQL;
+    }
+
+    public boolean returnsKeysByColumnName() {
+        return this == POSTGRESQL || this == ORACLE;
+    }
+
+    /**
+     * Whether a single INSERT ... ON DUPLICATE KEY UPDATE, ON CONFLICT or
+     * MERGE statement can insert or update a row by primary key.
+     */
+    public boolean supportsUpsert() {
+        return this != GENERIC;
+    }
+
+    /**
+     * Row limit clause appended after ORDER BY, taking the limit as a ?
+     * parameter. Oracle needs 12c or later, SQL Server 2012 or later.
+     */
+    public String getLimitClause() {
+        switch (this) {
+            case ORACLE:
+            case GENERIC:
+                return " FETCH FIRST ? ROWS ONLY";
+            case SQLSERVER:
+                return " OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+            default:
+                return " LIMIT ?";
+        }
+    }
+}
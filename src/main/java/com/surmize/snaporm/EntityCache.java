@@ -0,0 +1,35 @@
+package com.surmize.snaporm;
+
+/**
+ * Entities of one class keyed by primary key. BaseDAO only stores and reads
+ * private copies, so implementations can hand back the stored instance.
+ */
+public interface EntityCache {
+
+    Object get(Object key);
+
+    void put(Object key, Object entity);
+
+    /**
+     * @return a token for the key, taken before its row is read and passed
+     * to put
+     */
+    default long getInvalidationCount(Object key) {
+        return 0;
+    }
+
+    /**
+     * Stores the entity unless the key was invalidated, or the cache cleared,
+     * since invalidationCount was taken: the row may have been read before a
+     * write.
+     */
+    default void put(Object key, Object entity, long invalidationCount) {
+        put(key, entity);
+    }
+
+    void invalidate(Object key);
+
+    void clear();
+
+    CacheStatistics getStatistics();
+}
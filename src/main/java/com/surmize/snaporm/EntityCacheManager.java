@@ -0,0 +1,76 @@
+package com.surmize.snaporm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one EntityCache per entity class annotated with @Cacheable. Caches are
+ * created by the configured EntityCacheProvider, LocalEntityCacheProvider
+ * unless another is set.
+ */
+public class EntityCacheManager {
+
+    private static final EntityCache NO_CACHE = new LocalEntityCache(0, 0, TimeUnit.SECONDS);
+
+    private final ConcurrentMap<Class<?>, EntityCache> caches = new ConcurrentHashMap<>();
+    private volatile EntityCacheProvider provider = new LocalEntityCacheProvider();
+
+    private EntityCacheManager() {
+    }
+
+    public static EntityCacheManager getInstance() {
+        return EntityCacheManagerHolder.INSTANCE;
+    }
+
+    private static class EntityCacheManagerHolder {
+        private static final EntityCacheManager INSTANCE = new EntityCacheManager();
+    }
+
+    /**
+     * @return the cache for the entity class, or null if it is not @Cacheable
+     */
+    public EntityCache getCache(Class<?> entityClass) {
+        EntityCache cache = caches.get(entityClass);
+        if (cache == null) {
+            cache = caches.computeIfAbsent(entityClass, this::createCache);
+        }
+        return cache == NO_CACHE ? null : cache;
+    }
+
+    private EntityCache createCache(Class<?> entityClass) {
+        Cacheable settings = entityClass.getAnnotation(Cacheable.class);
+        return settings == null ? NO_CACHE : provider.createCache(entityClass, settings);
+    }
+
+    public EntityCacheProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Replaces the cache provider. Existing caches are dropped.
+     */
+    public void setProvider(EntityCacheProvider provider) {
+        this.provider = provider;
+        caches.clear();
+    }
+
+    public Map<Class<?>, CacheStatistics> getStatistics() {
+        Map<Class<?>, CacheStatistics> statistics = new HashMap<>();
+        for (Map.Entry<Class<?>, EntityCache> entry : caches.entrySet()) {
+            if (entry.getValue() != NO_CACHE) {
+                statistics.put(entry.getKey(), entry.getValue().getStatistics());
+            }
+        }
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    public void clearAll() {
+        for (EntityCache cache : caches.values()) {
+            cache.clear();
+        }
+    }
+}
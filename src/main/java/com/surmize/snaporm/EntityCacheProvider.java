@@ -0,0 +1,6 @@
+package com.surmize.snaporm;
+
+public interface EntityCacheProvider {
+
+    EntityCache createCache(Class<?> entityClass, Cacheable settings);
+}
@@ -0,0 +1,8 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+
+public interface EntityCallback<T> {
+
+    void process(T entity) throws SQLException;
+}
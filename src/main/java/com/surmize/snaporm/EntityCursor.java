@@ -0,0 +1,95 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Maps the rows of an open result set one at a time. The statement and
+ * connection are released when the last row has been read or when the cursor
+ * is closed, whichever happens first.
+ */
+public class EntityCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private final DataSourceManager dsMan;
+    private final Connection con;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper rowMapper;
+    private final boolean restoreAutoCommit;
+    private final QueryTimer timer;
+    private final ChangeTracker changeTracker;
+    private Boolean hasNext;
+    private boolean closed;
+
+    EntityCursor(DataSourceManager dsMan, Connection con, PreparedStatement stmt, ResultSet rs, RowMapper rowMapper, boolean restoreAutoCommit, QueryTimer timer, ChangeTracker changeTracker) {
+        this.dsMan = dsMan;
+        this.con = con;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+        this.restoreAutoCommit = restoreAutoCommit;
+        this.timer = timer;
+        this.changeTracker = changeTracker;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            if (closed) {
+                hasNext = false;
+            } else {
+                try {
+                    hasNext = rs.next();
+                } catch (SQLException ex) {
+                    timer.failed(ex);
+                    close();
+                    throw new UncheckedSQLException(ex);
+                }
+                if (!hasNext) {
+                    close();
+                }
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasNext = null;
+        try {
+            T entity = (T) rowMapper.getMetadata().newInstance();
+            rowMapper.mapRow(rs, entity);
+            if (changeTracker != null) {
+                changeTracker.snapshot(entity);
+            }
+            timer.addRows(1);
+            return entity;
+        } catch (SQLException ex) {
+            timer.failed(ex);
+            close();
+            throw new UncheckedSQLException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            dsMan.closeResultSet(rs);
+            dsMan.closeStatement(stmt);
+            if (restoreAutoCommit) {
+                dsMan.rollback(con);
+                dsMan.restoreAutoCommit(con, true);
+            }
+            dsMan.closeConnection(con);
+            timer.finish();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.surmize.snaporm;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Table name, primary key and column mappings of an entity class, built once
+ * per class from its annotations and shared by every DAO.
+ */
+public class EntityMetadata {
+
+    private static final ConcurrentMap<Class<?>, EntityMetadata> REGISTRY = new ConcurrentHashMap<>();
+    private static volatile AccessorStrategy accessorStrategy = new MethodHandleAccessorStrategy();
+    private static volatile boolean useGeneratedMappers = PropertyManager.getBooleanSetting("snaporm.GeneratedMappers", true);
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final ColumnMetadata primaryKey;
+    private final List<ColumnMetadata> columns;
+    private final Map<String, ColumnMetadata> columnsByName;
+    private final Map<String, RelationMetadata> relations;
+    private final EntityInstantiator instantiator;
+    private final boolean trackChanges;
+    private final GeneratedMapper generatedMapper;
+
+    private EntityMetadata(Class<?> entityClass) {
+        AccessorStrategy strategy = accessorStrategy;
+        this.entityClass = entityClass;
+        this.trackChanges = entityClass.isAnnotationPresent(TrackChanges.class);
+        TableName tableNameAnnotation = entityClass.getAnnotation(TableName.class);
+        if (tableNameAnnotation != null) {
+            tableName = tableNameAnnotation.value();
+        } else {
+            tableName = entityClass.getName();
+        }
+        Field pkField = findPrimaryKeyField(entityClass);
+        List<Field> columnFields = new ArrayList<>();
+        Map<String, RelationMetadata> relationsByName = new LinkedHashMap<>();
+        for (final Field field : entityClass.getDeclaredFields()) {
+            OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+            ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+            if (oneToMany != null || manyToOne != null) {
+                relationsByName.put(field.getName(), new RelationMetadata(field, oneToMany != null,
+                        oneToMany != null ? oneToMany.mappedBy() : manyToOne.value(), strategy.getFieldAccessor(field)));
+            } else if (field.getAnnotation(ColumnName.class) != null) {
+                columnFields.add(field);
+            }
+        }
+        this.generatedMapper = useGeneratedMappers ? findGeneratedMapper(entityClass, columnFields) : null;
+        this.instantiator = generatedMapper != null ? generatedMapper::newInstance : strategy.getInstantiator(entityClass);
+        List<ColumnMetadata> columnList = new ArrayList<>();
+        Map<String, ColumnMetadata> byName = new HashMap<>();
+        ColumnMetadata pk = null;
+        for (final Field field : columnFields) {
+            String columnName = field.getAnnotation(ColumnName.class).value();
+            // columns are indexed in the generated mapper's order, which findGeneratedMapper applied
+            FieldAccessor accessor = generatedMapper != null
+                    ? generatedMapper.getAccessor(columnList.size()) : strategy.getFieldAccessor(field);
+            ColumnMetadata column = new ColumnMetadata(field, columnName, columnList.size(), field.equals(pkField), accessor);
+            columnList.add(column);
+            byName.put(columnName.toLowerCase(Locale.ROOT), column);
+            if (column.isPrimaryKey()) {
+                pk = column;
+            }
+        }
+        if (pk == null && pkField != null && pkField.getAnnotation(ColumnName.class) != null) {
+            // inherited public id field
+            pk = new ColumnMetadata(pkField, pkField.getAnnotation(ColumnName.class).value(), -1,
+                    true, strategy.getFieldAccessor(pkField));
+        }
+        this.primaryKey = pk;
+        this.columns = Collections.unmodifiableList(columnList);
+        this.columnsByName = byName;
+        this.relations = Collections.unmodifiableMap(relationsByName);
+    }
+
+    public static EntityMetadata forClass(Class<?> entityClass) {
+        EntityMetadata metadata = REGISTRY.get(entityClass);
+        if (metadata == null) {
+            metadata = REGISTRY.computeIfAbsent(entityClass, EntityMetadata::new);
+        }
+        return metadata;
+    }
+
+    public static EntityMetadata forEntity(Object entity) {
+        return forClass(entity.getClass());
+    }
+
+    public static boolean isUseGeneratedMappers() {
+        return useGeneratedMappers;
+    }
+
+    /**
+     * Turns the use of compile-time generated mappers on or off; it is on
+     * unless snaporm.GeneratedMappers is false. Existing metadata is discarded.
+     */
+    public static void setUseGeneratedMappers(boolean useGeneratedMappers) {
+        EntityMetadata.useGeneratedMappers = useGeneratedMappers;
+        REGISTRY.clear();
+    }
+
+    public static AccessorStrategy getAccessorStrategy() {
+        return accessorStrategy;
+    }
+
+    /**
+     * Replaces the strategy used to read, write and create entities. Metadata
+     * built with the previous strategy is discarded.
+     */
+    public static void setAccessorStrategy(AccessorStrategy strategy) {
+        accessorStrategy = strategy;
+        REGISTRY.clear();
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return the primary key column, or null if the entity has no @PK field
+     * and no public id field annotated with @ColumnName
+     */
+    public ColumnMetadata getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public List<ColumnMetadata> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the compile-time generated mapper of the entity, or null if
+     * there is none and the entity is mapped through its AccessorStrategy
+     */
+    public GeneratedMapper getGeneratedMapper() {
+        return generatedMapper;
+    }
+
+    public boolean isTrackChanges() {
+        return trackChanges;
+    }
+
+    public Object newInstance() throws SQLException {
+        return instantiator.newInstance();
+    }
+
+    /**
+     * @return a new instance with every mapped column copied from the entity
+     */
+    public Object copy(Object entity) throws SQLException {
+        Object copy = newInstance();
+        for (ColumnMetadata column : columns) {
+            column.setValue(copy, column.getValue(entity));
+        }
+        if (primaryKey != null && primaryKey.getIndex() < 0) {
+            primaryKey.setValue(copy, primaryKey.getValue(entity));
+        }
+        return copy;
+    }
+
+    public ColumnMetadata getColumn(String columnName) {
+        return columnsByName.get(columnName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the @OneToMany and @ManyToOne fields, keyed by field name
+     */
+    public Map<String, RelationMetadata> getRelations() {
+        return relations;
+    }
+
+    public RelationMetadata getRelation(String fieldName) {
+        return relations.get(fieldName);
+    }
+
+    /**
+     * Finds the generated mapper of the entity and, if it maps exactly the
+     * entity's columns, reorders columnFields to the mapper's column order.
+     * Columns are matched by name, as getDeclaredFields() has no set order.
+     */
+    private static GeneratedMapper findGeneratedMapper(Class<?> entityClass, List<Field> columnFields) {
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(entityClass.getName() + GeneratedMapper.CLASS_SUFFIX, true, entityClass.getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+        try {
+            GeneratedMapper mapper = (GeneratedMapper) mapperClass.getDeclaredConstructor().newInstance();
+            Map<String, Field> fieldsByColumn = new HashMap<>();
+            for (Field field : columnFields) {
+                fieldsByColumn.put(field.getAnnotation(ColumnName.class).value(), field);
+            }
+            List<Field> ordered = new ArrayList<>();
+            for (String columnName : mapper.getColumnNames()) {
+                Field field = fieldsByColumn.remove(columnName);
+                if (field != null) {
+                    ordered.add(field);
+                }
+            }
+            if (ordered.size() == columnFields.size() && ordered.size() == mapper.getColumnNames().length) {
+                columnFields.clear();
+                columnFields.addAll(ordered);
+                return mapper;
+            }
+            Logger.getLogger(EntityMetadata.class.getName()).log(Level.WARNING,
+                    "{0} does not match the columns of {1}; recompile it. Using reflection instead",
+                    new Object[]{mapperClass.getName(), entityClass.getName()});
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+            Logger.getLogger(EntityMetadata.class.getName()).log(Level.WARNING, "Cannot use " + mapperClass.getName(), ex);
+        }
+        return null;
+    }
+
+    private static Field findPrimaryKeyField(Class<?> entityClass) {
+        // first look for a @PK annotation
+        for (final Field field : entityClass.getDeclaredFields()) {
+            if (field.getAnnotation(PK.class) != null) {
+                return field;
+            }
+        }
+        try {
+            return entityClass.getField("id");
+        } catch (NoSuchFieldException | SecurityException ex) {
+            return null;
+        }
+    }
+}
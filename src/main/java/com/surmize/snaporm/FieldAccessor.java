@@ -0,0 +1,33 @@
+package com.surmize.snaporm;
+
+/**
+ * Reads and writes one entity field. The typed variants let primitive fields
+ * be read and written without boxing; they are only used with fields of that
+ * exact primitive type.
+ */
+public interface FieldAccessor {
+
+    Object get(Object entity);
+
+    void set(Object entity, Object value);
+
+    int getInt(Object entity);
+
+    void setInt(Object entity, int value);
+
+    long getLong(Object entity);
+
+    void setLong(Object entity, long value);
+
+    double getDouble(Object entity);
+
+    void setDouble(Object entity, double value);
+
+    float getFloat(Object entity);
+
+    void setFloat(Object entity, float value);
+
+    boolean getBoolean(Object entity);
+
+    void setBoolean(Object entity, boolean value);
+}
@@ -0,0 +1,57 @@
+package com.surmize.snaporm;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Mapping code for one entity generated at compile time by the
+ * SnapORM-processor annotation processor, as a class named after the entity
+ * with the _SnapMapper suffix. EntityMetadata picks it up automatically and
+ * uses it instead of reflection when its columns match the entity's by name.
+ * Columns are numbered in getColumnNames() order, which EntityMetadata then
+ * uses for ColumnMetadata.getIndex() and getColumns().
+ */
+public interface GeneratedMapper {
+
+    String CLASS_SUFFIX = "_SnapMapper";
+
+    String[] getColumnNames();
+
+    Object newInstance();
+
+    FieldAccessor getAccessor(int column);
+
+    /**
+     * Maps the current row; indexes holds the result set index of every
+     * column, or 0 for columns not in the result.
+     */
+    void mapRow(ResultSet rs, int[] indexes, Object entity) throws SQLException;
+
+    /**
+     * @return the parameter index following the last bound column
+     */
+    int bindColumns(PreparedStatement stmt, List<ColumnMetadata> columns, Object entity, int parameterIndex) throws SQLException;
+
+    /**
+     * @return the INSERT of every column
+     */
+    String getInsertSql();
+
+    /**
+     * @return the UPDATE of every column but the primary key, or null if the
+     * entity has no primary key or no other columns
+     */
+    String getUpdateSql();
+
+    /**
+     * @return the SELECT of every column by primary key, or null if the
+     * entity has no primary key
+     */
+    String getFindByIdSql();
+
+    String getDeleteSql();
+
+    String getExistsSql();
+}
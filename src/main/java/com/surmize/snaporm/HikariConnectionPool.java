@@ -0,0 +1,116 @@
+package com.surmize.snaporm;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Lightweight pool backed by HikariCP. Add com.zaxxer:HikariCP to the
+ * application's dependencies and set cp.PoolType=hikari to use it. HikariCP
+ * validates connections with Connection.isValid() when no
+ * cp.ValidationQuery is set, and only revalidates connections idle for
+ * longer than cp.ValidationInterval.
+ */
+public class HikariConnectionPool extends AbstractConnectionPool {
+
+    private final HikariConfig hikariConfig;
+    private volatile HikariDataSource datasource;
+
+    public HikariConnectionPool(PoolConfig config) {
+        super(config);
+        hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(config.getName());
+        hikariConfig.setJdbcUrl(config.getUrl());
+        if (config.getDriverClassName() != null) {
+            hikariConfig.setDriverClassName(config.getDriverClassName());
+        }
+        hikariConfig.setUsername(config.getUsername());
+        hikariConfig.setPassword(config.getPassword());
+        if (config.getValidationQuery() != null) {
+            hikariConfig.setConnectionTestQuery(config.getValidationQuery());
+        }
+        hikariConfig.setMaximumPoolSize(config.getMaxActive());
+        hikariConfig.setMinimumIdle(Math.min(config.getMinIdle(), config.getMaxActive()));
+        hikariConfig.setConnectionTimeout(Math.max(250, config.getMaxWait()));
+        hikariConfig.setIdleTimeout(Math.max(10000, config.getMinEvictableIdleTimeMillis()));
+        if (config.isRemoveAbandoned() && config.isLogAbandoned()) {
+            hikariConfig.setLeakDetectionThreshold(config.getRemoveAbandonedTimeout() * 1000L);
+        }
+        hikariConfig.setRegisterMbeans(config.isJmxEnabled());
+        // let getConnection() open the pool so construction never blocks on the database
+        hikariConfig.setInitializationFailTimeout(-1);
+    }
+
+    private HikariDataSource datasource() {
+        HikariDataSource ds = datasource;
+        if (ds == null) {
+            synchronized (this) {
+                ds = datasource;
+                if (ds == null) {
+                    ds = new HikariDataSource(hikariConfig);
+                    datasource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    @Override
+    protected Connection borrowConnection() throws SQLException {
+        return datasource().getConnection();
+    }
+
+    @Override
+    protected Connection borrowConnection(long timeoutMillis) throws SQLException {
+        HikariPoolMXBean pool = datasource().getHikariPoolMXBean();
+        if (pool instanceof HikariPool) {
+            return ((HikariPool) pool).getConnection(timeoutMillis);
+        }
+        return borrowConnection();
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return datasource();
+    }
+
+    @Override
+    public void warmUp() throws SQLException {
+        datasource().getConnection().close();
+    }
+
+    @Override
+    protected int getActive() {
+        HikariPoolMXBean pool = mxBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+
+    @Override
+    protected int getIdle() {
+        HikariPoolMXBean pool = mxBean();
+        return pool == null ? 0 : pool.getIdleConnections();
+    }
+
+    @Override
+    protected int getWaiting() {
+        HikariPoolMXBean pool = mxBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    private HikariPoolMXBean mxBean() {
+        HikariDataSource ds = datasource;
+        return ds == null ? null : ds.getHikariPoolMXBean();
+    }
+
+    @Override
+    public void close() {
+        HikariDataSource ds = datasource;
+        if (ds != null) {
+            ds.close();
+        }
+    }
+}
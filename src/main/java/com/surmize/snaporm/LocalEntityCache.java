@@ -0,0 +1,121 @@
+package com.surmize.snaporm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory LRU cache with a time to live per entry.
+ */
+public class LocalEntityCache implements EntityCache {
+
+    private static final int MIN_TRACKED_INVALIDATIONS = 1024;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, CacheEntry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    // when each recently invalidated key was invalidated; puts of keys that
+    // were forgotten are checked against forgottenAt instead
+    private final LinkedHashMap<Object, Long> invalidatedKeys = new LinkedHashMap<>();
+    private long forgottenAt;
+
+    public LocalEntityCache(int maxSize, long ttl, TimeUnit unit) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+                if (size() > LocalEntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.created > ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.entity;
+    }
+
+    @Override
+    public synchronized void put(Object key, Object entity) {
+        if (maxSize > 0) {
+            entries.put(key, new CacheEntry(entity, System.nanoTime()));
+        }
+    }
+
+    /**
+     * @return the number of invalidations so far; a put is only refused if
+     * its own key was invalidated after this
+     */
+    @Override
+    public synchronized long getInvalidationCount(Object key) {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized void put(Object key, Object entity, long invalidationCount) {
+        if (invalidationCount < forgottenAt) {
+            return;
+        }
+        Long invalidatedAt = invalidatedKeys.get(key);
+        if (invalidatedAt == null || invalidatedAt <= invalidationCount) {
+            put(key, entity);
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Object key) {
+        invalidations++;
+        entries.remove(key);
+        invalidatedKeys.remove(key);
+        invalidatedKeys.put(key, invalidations);
+        if (invalidatedKeys.size() > Math.max(maxSize, MIN_TRACKED_INVALIDATIONS)) {
+            Iterator<Long> it = invalidatedKeys.values().iterator();
+            forgottenAt = it.next();
+            it.remove();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+        invalidatedKeys.clear();
+        forgottenAt = invalidations;
+    }
+
+    @Override
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits, misses, evictions, entries.size());
+    }
+
+    private static class CacheEntry {
+
+        private final Object entity;
+        private final long created;
+
+        CacheEntry(Object entity, long created) {
+            this.entity = entity;
+            this.created = created;
+        }
+    }
+}
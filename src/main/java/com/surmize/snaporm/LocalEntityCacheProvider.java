@@ -0,0 +1,11 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+
+public class LocalEntityCacheProvider implements EntityCacheProvider {
+
+    @Override
+    public EntityCache createCache(Class<?> entityClass, Cacheable settings) {
+        return new LocalEntityCache(settings.maxSize(), settings.ttlSeconds(), TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,21 @@
+package com.surmize.snaporm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field holding the entity whose primary key is stored in the named
+ * column of this entity, which must also be mapped with @ColumnName. The field
+ * is only filled by BaseDAO.fetchRelations or a select that names it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ManyToOne {
+
+    /**
+     * @return the column of this entity holding the referenced primary key
+     */
+    String value();
+}
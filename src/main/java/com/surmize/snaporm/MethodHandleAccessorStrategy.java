@@ -0,0 +1,251 @@
+package com.surmize.snaporm;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accessors built from MethodHandles, with primitive fields read and written
+ * through exactly typed handles so values are never boxed. Entities are
+ * created through a LambdaMetafactory generated Supplier bound to the no-arg
+ * constructor. Anything that cannot be reached this way (final fields,
+ * inaccessible constructors, entities of a class loader SnapORM cannot see)
+ * falls back to ReflectionAccessorStrategy.
+ */
+public class MethodHandleAccessorStrategy implements AccessorStrategy {
+
+    private static final MethodType GET = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SET = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final ReflectionAccessorStrategy fallback = new ReflectionAccessorStrategy();
+
+    @Override
+    public FieldAccessor getFieldAccessor(Field field) {
+        if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers())) {
+            return fallback.getFieldAccessor(field);
+        }
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+            return new MethodHandleFieldAccessor(field.getType(), getter, setter);
+        } catch (IllegalAccessException | SecurityException ex) {
+            Logger.getLogger(MethodHandleAccessorStrategy.class.getName()).log(Level.FINE, null, ex);
+            return fallback.getFieldAccessor(field);
+        }
+    }
+
+    @Override
+    public EntityInstantiator getInstantiator(Class<?> entityClass) {
+        if (!isVisible(entityClass)) {
+            // the generated Supplier lives with SnapORM and could not link to the entity
+            return fallback.getInstantiator(entityClass);
+        }
+        try {
+            MethodHandle constructor = lookup.findConstructor(entityClass, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                    constructor, MethodType.methodType(entityClass));
+            final Supplier<?> supplier = (Supplier<?>) site.getTarget().invokeExact();
+            return new EntityInstantiator() {
+                @Override
+                public Object newInstance() throws SQLException {
+                    return supplier.get();
+                }
+            };
+        } catch (Throwable t) {
+            Logger.getLogger(MethodHandleAccessorStrategy.class.getName()).log(Level.FINE, null, t);
+            return fallback.getInstantiator(entityClass);
+        }
+    }
+
+    private static boolean isVisible(Class<?> entityClass) {
+        try {
+            return Class.forName(entityClass.getName(), false, MethodHandleAccessorStrategy.class.getClassLoader()) == entityClass;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static class MethodHandleFieldAccessor implements FieldAccessor {
+
+        private final MethodHandle get;
+        private final MethodHandle set;
+        private final MethodHandle getTyped;
+        private final MethodHandle setTyped;
+
+        MethodHandleFieldAccessor(Class<?> type, MethodHandle getter, MethodHandle setter) {
+            get = getter.asType(GET);
+            set = setter.asType(SET);
+            if (type.isPrimitive()) {
+                getTyped = getter.asType(MethodType.methodType(type, Object.class));
+                setTyped = setter.asType(MethodType.methodType(void.class, Object.class, type));
+            } else {
+                getTyped = null;
+                setTyped = null;
+            }
+        }
+
+        @Override
+        public Object get(Object entity) {
+            try {
+                return get.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void set(Object entity, Object value) {
+            try {
+                set.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public int getInt(Object entity) {
+            if (getTyped == null) {
+                return ((Number) get(entity)).intValue();
+            }
+            try {
+                return (int) getTyped.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void setInt(Object entity, int value) {
+            if (setTyped == null) {
+                set(entity, value);
+                return;
+            }
+            try {
+                setTyped.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public long getLong(Object entity) {
+            if (getTyped == null) {
+                return ((Number) get(entity)).longValue();
+            }
+            try {
+                return (long) getTyped.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void setLong(Object entity, long value) {
+            if (setTyped == null) {
+                set(entity, value);
+                return;
+            }
+            try {
+                setTyped.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public double getDouble(Object entity) {
+            if (getTyped == null) {
+                return ((Number) get(entity)).doubleValue();
+            }
+            try {
+                return (double) getTyped.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void setDouble(Object entity, double value) {
+            if (setTyped == null) {
+                set(entity, value);
+                return;
+            }
+            try {
+                setTyped.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public float getFloat(Object entity) {
+            if (getTyped == null) {
+                return ((Number) get(entity)).floatValue();
+            }
+            try {
+                return (float) getTyped.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void setFloat(Object entity, float value) {
+            if (setTyped == null) {
+                set(entity, value);
+                return;
+            }
+            try {
+                setTyped.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object entity) {
+            if (getTyped == null) {
+                return (Boolean) get(entity);
+            }
+            try {
+                return (boolean) getTyped.invokeExact(entity);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object entity, boolean value) {
+            if (setTyped == null) {
+                set(entity, value);
+                return;
+            }
+            try {
+                setTyped.invokeExact(entity, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private static RuntimeException unchecked(Throwable t) {
+            if (t instanceof RuntimeException) {
+                return (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            return new IllegalStateException(t);
+        }
+    }
+}
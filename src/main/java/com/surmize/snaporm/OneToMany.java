@@ -0,0 +1,21 @@
+package com.surmize.snaporm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a List, Set or Collection field holding the entities whose mappedBy
+ * column contains this entity's primary key. The field is only filled by
+ * BaseDAO.fetchRelations or a select that names it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface OneToMany {
+
+    /**
+     * @return the column of the element entity that refers to this entity
+     */
+    String mappedBy();
+}
@@ -0,0 +1,37 @@
+package com.surmize.snaporm;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated read. Pass the next page token back to
+ * BaseDAO.findPage to read the following page.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the token of the next page, or null if this is the last page
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
@@ -0,0 +1,110 @@
+package com.surmize.snaporm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes the sort key of the last row of a page as an opaque, URL safe
+ * continuation token, and decodes it back to values to bind.
+ */
+final class PageToken {
+
+    private static final int VERSION = 1;
+
+    private PageToken() {
+    }
+
+    static String encode(String sortName, List<ColumnMetadata> keyColumns, Object entity) throws SQLException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeUTF(sortName);
+            for (ColumnMetadata column : keyColumns) {
+                Object value = column.getValue(entity);
+                if (value == null) {
+                    throw new SQLException("Cannot page past a null value of " + column.getName());
+                }
+                out.writeUTF(value instanceof Date ? String.valueOf(((Date) value).getTime()) : value.toString());
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    static Object[] decode(String token, String sortName, List<ColumnMetadata> keyColumns) throws SQLException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)));
+            if (in.readByte() != VERSION || !sortName.equals(in.readUTF())) {
+                throw new SQLException("Page token was not issued for this sort order");
+            }
+            Object[] values = new Object[keyColumns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parse(keyColumns.get(i), in.readUTF());
+            }
+            return values;
+        } catch (IOException | IllegalArgumentException | DateTimeParseException ex) {
+            throw new SQLException("Invalid page token", ex);
+        }
+    }
+
+    private static Object parse(ColumnMetadata column, String value) throws SQLException {
+        switch (column.getValueType()) {
+            case INT:
+                return Integer.valueOf(value);
+            case LONG:
+                return Long.valueOf(value);
+            case DOUBLE:
+                return Double.valueOf(value);
+            case FLOAT:
+                return Float.valueOf(value);
+            case BOOLEAN:
+                return Boolean.valueOf(value);
+            case STRING:
+                return value;
+            case DATE:
+                return new Timestamp(Long.parseLong(value));
+            case LOCAL_DATE:
+                return LocalDate.parse(value);
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(value);
+            case LOCAL_TIME:
+                return LocalTime.parse(value);
+            case INSTANT:
+                return Instant.parse(value);
+            default:
+                break;
+        }
+        Class<?> type = column.getType();
+        if (type.equals(Short.TYPE) || type.equals(Short.class)) {
+            return Short.valueOf(value);
+        } else if (type.equals(BigDecimal.class)) {
+            return new BigDecimal(value);
+        } else if (type.equals(BigInteger.class)) {
+            return new BigDecimal(new BigInteger(value));
+        } else if (type.equals(UUID.class)) {
+            return UUID.fromString(value);
+        } else if (Date.class.isAssignableFrom(type)) {
+            return new Timestamp(Long.parseLong(value));
+        }
+        throw new SQLException("Cannot page on column " + column.getName() + " of type " + type.getName());
+    }
+}
@@ -0,0 +1,147 @@
+package com.surmize.snaporm;
+
+/**
+ * Connection pool settings read through PropertyManager. Every key is looked
+ * up under a prefix, cp. for the primary data source, with the defaults
+ * SnapORM has always used. A replica's settings are read under its own prefix
+ * and fall back to the primary's.
+ */
+public class PoolConfig {
+
+    private final String name;
+    private final String prefix;
+    private final PoolConfig parent;
+
+    public PoolConfig(String name, String prefix) {
+        this(name, prefix, null);
+    }
+
+    public PoolConfig(String name, String prefix, PoolConfig parent) {
+        this.name = name;
+        this.prefix = prefix;
+        this.parent = parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getSetting(String key) {
+        return getSetting(key, null);
+    }
+
+    public String getSetting(String key, String defaultValue) {
+        String value = PropertyManager.getSetting(prefix + key);
+        if (value == null) {
+            return parent != null ? parent.getSetting(key, defaultValue) : defaultValue;
+        }
+        return value;
+    }
+
+    public int getIntegerSetting(String key, int defaultValue) {
+        String value = getSetting(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLongSetting(String key, long defaultValue) {
+        String value = getSetting(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public boolean getBooleanSetting(String key, boolean defaultValue) {
+        String value = getSetting(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public String getPoolType() {
+        return getSetting("PoolType", "tomcat");
+    }
+
+    public String getUrl() {
+        return getSetting("Url");
+    }
+
+    public String getDriverClassName() {
+        return getSetting("DriverClassName");
+    }
+
+    public String getUsername() {
+        return getSetting("Username");
+    }
+
+    public String getPassword() {
+        return getSetting("Password");
+    }
+
+    public String getValidationQuery() {
+        return getSetting("ValidationQuery");
+    }
+
+    public int getMaxActive() {
+        return getIntegerSetting("MaxActive", 100);
+    }
+
+    public int getInitialSize() {
+        return getIntegerSetting("InitialSize", 10);
+    }
+
+    public int getMinIdle() {
+        return getIntegerSetting("MinIdle", 10);
+    }
+
+    public int getMaxWait() {
+        return getIntegerSetting("MaxWait", 30000);
+    }
+
+    public boolean isTestOnBorrow() {
+        return getBooleanSetting("TestOnBorrow", true);
+    }
+
+    public boolean isTestWhileIdle() {
+        return getBooleanSetting("TestWhileIdle", false);
+    }
+
+    public boolean isTestOnReturn() {
+        return getBooleanSetting("TestOnReturn", false);
+    }
+
+    public long getValidationInterval() {
+        return getLongSetting("ValidationInterval", 30000);
+    }
+
+    public int getTimeBetweenEvictionRunsMillis() {
+        return getIntegerSetting("TimeBetweenEvictionRunsMillis", 30000);
+    }
+
+    public int getMinEvictableIdleTimeMillis() {
+        return getIntegerSetting("MinEvictableIdleTimeMillis", 30000);
+    }
+
+    public boolean isRemoveAbandoned() {
+        return getBooleanSetting("RemoveAbandoned", true);
+    }
+
+    public int getRemoveAbandonedTimeout() {
+        return getIntegerSetting("RemoveAbandonedTimeout", 60);
+    }
+
+    public boolean isLogAbandoned() {
+        return getBooleanSetting("LogAbandoned", true);
+    }
+
+    public boolean isJmxEnabled() {
+        return getBooleanSetting("JmxEnabled", false);
+    }
+
+    public String getJdbcInterceptors() {
+        return getSetting("JdbcInterceptors");
+    }
+
+    public boolean isEagerInit() {
+        return getBooleanSetting("EagerInit", false);
+    }
+}
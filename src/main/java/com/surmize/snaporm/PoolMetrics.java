@@ -0,0 +1,88 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+
+public class PoolMetrics {
+
+    private final String name;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final int maxActive;
+    private final long borrowCount;
+    private final long borrowFailures;
+    private final long totalBorrowWaitNanos;
+    private final long maxBorrowWaitNanos;
+
+    public PoolMetrics(String name, int active, int idle, int waiting, int maxActive, long borrowCount,
+            long borrowFailures, long totalBorrowWaitNanos, long maxBorrowWaitNanos) {
+        this.name = name;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.maxActive = maxActive;
+        this.borrowCount = borrowCount;
+        this.borrowFailures = borrowFailures;
+        this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+        this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * @return threads currently waiting for a connection
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getBorrowFailures() {
+        return borrowFailures;
+    }
+
+    public long getTotalBorrowWaitNanos() {
+        return totalBorrowWaitNanos;
+    }
+
+    public double getAverageBorrowWaitMillis() {
+        long borrows = borrowCount + borrowFailures;
+        return borrows == 0 ? 0d : (double) totalBorrowWaitNanos / borrows / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxBorrowWaitMillis() {
+        return (double) maxBorrowWaitNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return active connections as a fraction of maxActive
+     */
+    public double getUtilization() {
+        return maxActive <= 0 ? 0d : (double) active / maxActive;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{name=" + name + ", active=" + active + ", idle=" + idle + ", waiting=" + waiting
+                + ", maxActive=" + maxActive + ", borrowCount=" + borrowCount + ", borrowFailures=" + borrowFailures
+                + ", averageBorrowWaitMillis=" + getAverageBorrowWaitMillis()
+                + ", maxBorrowWaitMillis=" + getMaxBorrowWaitMillis() + "}";
+    }
+}
@@ -1,200 +1,624 @@
 package com.surmize.snaporm;
 
-import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class PreparedStatementGenerator {
 
+    private final SqlTemplateCache sqlCache = SqlTemplateCache.getInstance();
+    private final QueryListenerManager queryListeners = QueryListenerManager.getInstance();
+    private final DataSourceManager dsMan = DataSourceManager.getInstance();
+
+    /**
+     * Prepares the SQL, recording it on the thread's QueryTimer and applying
+     * the thread's deadline.
+     */
+    public PreparedStatement prepare(Connection con, String sql) throws SQLException {
+        queryListeners.prepared(sql);
+        return applyDeadline(con.prepareStatement(sql));
+    }
+
     public PreparedStatement getStatement(Connection con, String query, List params) throws SQLException {
-        PreparedStatement stmt = con.prepareStatement(query);
+        PreparedStatement stmt = prepare(con, query);
         if (params != null) {
             for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
+                setParameter(stmt, i + 1, params.get(i));
             }
         }
         return stmt;
     }
 
     public PreparedStatement getInsertStatement(Connection con, Object entity) throws SQLException {
-        List params = new ArrayList();
-        StringBuilder sqlBuilder = new StringBuilder("INSERT INTO ").append(getTableName(entity)).append(" (");
-        StringBuilder paramList = new StringBuilder(" VALUES (");
-        final Field[] fields = entity.getClass().getDeclaredFields();
-        for (final Field field : fields) {
-            final ColumnName columnName = field.getAnnotation(ColumnName.class);
-            Object fieldValue = getFieldValue(field, entity);
-            if (columnName != null && fieldValue != null) {
-                String column = columnName.value();
-                sqlBuilder.append(column).append(",");
+        EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        List<ColumnMetadata> columns = getInsertColumns(entity);
+        PreparedStatement stmt = prepare(con, getInsertSql(metadata, columns));
+        bindColumns(stmt, columns, entity, 1);
+        return stmt;
+    }
+
+    /**
+     * Prepares an insert that returns the generated primary key. PostgreSQL and
+     * Oracle are asked for the key column by name, since they would otherwise
+     * return every column or a ROWID.
+     */
+    public PreparedStatement prepareReturningKeys(Connection con, Dialect dialect, String sql, ColumnMetadata pk) throws SQLException {
+        queryListeners.prepared(sql);
+        if (pk != null && dialect.returnsKeysByColumnName()) {
+            return applyDeadline(con.prepareStatement(sql, new String[]{pk.getName()}));
+        }
+        return applyDeadline(con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS));
+    }
+
+    private PreparedStatement applyDeadline(PreparedStatement stmt) throws SQLException {
+        try {
+            dsMan.applyDeadline(stmt);
+            return stmt;
+        } catch (SQLException | RuntimeException ex) {
+            dsMan.closeStatement(stmt);
+            throw ex;
+        }
+    }
+
+    public PreparedStatement getUpdateStatement(Connection con, Object entity) throws SQLException {
+        return getUpdateStatement(con, entity, getUpdateColumns(entity));
+    }
+
+    public PreparedStatement getUpdateStatement(Connection con, Object entity, List<ColumnMetadata> columns) throws SQLException {
+        PreparedStatement stmt = prepare(con, getUpdateSql(EntityMetadata.forEntity(entity), columns));
+        bindUpdateParameters(stmt, columns, entity);
+        return stmt;
+    }
+
+    public List<ColumnMetadata> getInsertColumns(Object entity) {
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (final ColumnMetadata column : EntityMetadata.forEntity(entity).getColumns()) {
+            if (column.isPrimitive() || column.getValue(entity) != null) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return the columns an UPDATE of the entity writes: for a tracked
+     * instance of a @TrackChanges entity the columns changed since it was
+     * loaded, which may be empty, otherwise every non-null column
+     */
+    public List<ColumnMetadata> getUpdateColumns(Object entity) throws SQLException {
+        requirePrimaryKey(entity);
+        if (EntityMetadata.forEntity(entity).isTrackChanges()) {
+            List<ColumnMetadata> changed = ChangeTracker.getInstance().getChangedColumns(entity);
+            if (changed != null) {
+                return changed;
+            }
+        }
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (final ColumnMetadata column : EntityMetadata.forEntity(entity).getColumns()) {
+            if (!column.isPrimaryKey() && (column.isPrimitive() || column.getValue(entity) != null)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    public String getInsertSql(EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        if (columns.isEmpty()) {
+            throw new SQLException("No column values to insert");
+        }
+        GeneratedMapper generated = metadata.getGeneratedMapper();
+        if (generated != null && columns.size() == metadata.getColumns().size()) {
+            return generated.getInsertSql();
+        }
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.INSERT, columns);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            StringBuilder sqlBuilder = new StringBuilder("INSERT INTO ").append(metadata.getTableName()).append(" (");
+            StringBuilder paramList = new StringBuilder(" VALUES (");
+            for (final ColumnMetadata column : columns) {
+                sqlBuilder.append(column.getName()).append(",");
                 paramList.append("?,");
-                params.add(fieldValue);
             }
+            sqlBuilder.deleteCharAt(sqlBuilder.lastIndexOf(",")).append(") ");
+            paramList.deleteCharAt(paramList.lastIndexOf(",")).append(") ");
+            sqlBuilder.append(paramList);
+            sql = sqlBuilder.toString();
+            sqlCache.put(key, sql);
         }
-        sqlBuilder.deleteCharAt(sqlBuilder.lastIndexOf(",")).append(") ");
-        paramList.deleteCharAt(paramList.lastIndexOf(",")).append(") ");
-        sqlBuilder.append(paramList);
-        return getStatement(con, sqlBuilder.toString(), params);
+        return sql;
     }
 
-    public PreparedStatement getUpdateStatement(Connection con, Object entity) throws SQLException {
-        AbstractMap.SimpleEntry primaryKeyAndValueMap = getPrimaryKeyNameAndValue(entity);
-        if (primaryKeyAndValueMap == null) {
-            throw new SQLException("Primary Key cannot be empty");
+    public String getUpdateSql(EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        if (columns.isEmpty()) {
+            throw new SQLException("No column values to update");
         }
-        List params = new ArrayList();
-        StringBuilder sqlBuilder = new StringBuilder("UPDATE ").append(getTableName(entity)).append(" SET ");
-        final Field[] fields = entity.getClass().getDeclaredFields();
-        for (final Field field : fields) {
-            final ColumnName columnName = field.getAnnotation(ColumnName.class);
-            Object fieldValue = getFieldValue(field, entity);
-            if (columnName != null && fieldValue != null) {
-                String column = columnName.value();
-                if (columnName != primaryKeyAndValueMap.getKey()) {
-                    sqlBuilder.append(column).append("=?,");
-                    params.add(fieldValue);
-                }
+        GeneratedMapper generated = metadata.getGeneratedMapper();
+        if (generated != null && columns.size() == metadata.getColumns().size() - 1 && generated.getUpdateSql() != null) {
+            return generated.getUpdateSql();
+        }
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.UPDATE, columns);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            StringBuilder sqlBuilder = new StringBuilder("UPDATE ").append(metadata.getTableName()).append(" SET ");
+            for (final ColumnMetadata column : columns) {
+                sqlBuilder.append(column.getName()).append("=?,");
             }
+            sqlBuilder.deleteCharAt(sqlBuilder.lastIndexOf(",")).append(" ");
+            sqlBuilder.append("WHERE ").append(metadata.getPrimaryKey().getName()).append("=?");
+            sql = sqlBuilder.toString();
+            sqlCache.put(key, sql);
         }
-        sqlBuilder.deleteCharAt(sqlBuilder.lastIndexOf(",")).append(" ");
-        sqlBuilder.append("WHERE ").append(primaryKeyAndValueMap.getKey()).append("=?");
-        params.add(primaryKeyAndValueMap.getValue());
-        return getStatement(con, sqlBuilder.toString(), params);
+        return sql;
     }
 
-    public PreparedStatement getDeleteStatement(Connection con, Object entity) throws SQLException {
-        AbstractMap.SimpleEntry keyValue = getPrimaryKeyNameAndValue(entity);
-        if (keyValue == null) {
+    public PreparedStatement getUpsertStatement(Connection con, Dialect dialect, Object entity) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        List<ColumnMetadata> columns = getInsertColumns(entity);
+        PreparedStatement stmt = prepare(con, getUpsertSql(dialect, metadata, columns));
+        bindColumns(stmt, columns, entity, 1);
+        return stmt;
+    }
+
+    /**
+     * Builds a statement that inserts the given columns, or updates them when
+     * a row with the same primary key exists. The columns must include the
+     * primary key and are bound in order, exactly like an insert.
+     */
+    public String getUpsertSql(Dialect dialect, EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null || !columns.contains(pk)) {
             throw new SQLException("Primary Key cannot be empty");
         }
-        String deleteSQL = "DELETE FROM %s WHERE %s=?";
-        String sql = String.format(deleteSQL, getTableName(entity), keyValue.getKey());
-        PreparedStatement stmt = con.prepareStatement(sql);
-        stmt.setObject(1, keyValue.getValue());
-        return stmt;
+        if (!dialect.supportsUpsert()) {
+            throw new SQLException("Upsert is not supported for " + dialect);
+        }
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.UPSERT, dialect, columns, 0);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            sql = buildUpsertSql(dialect, metadata, columns);
+            sqlCache.put(key, sql);
+        }
+        return sql;
     }
 
-    public PreparedStatement getFindByIdStatement(Connection con, Object entity, Object pk) throws SQLException {
-        String pkColumn = getPrimaryKeyColumnName(entity);
-        if (pkColumn == null) {
+    private String buildUpsertSql(Dialect dialect, EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        String table = metadata.getTableName();
+        String pk = metadata.getPrimaryKey().getName();
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder paramList = new StringBuilder();
+        StringBuilder sourceList = new StringBuilder();
+        for (final ColumnMetadata column : columns) {
+            columnList.append(column.getName()).append(",");
+            paramList.append("?,");
+            sourceList.append("source.").append(column.getName()).append(",");
+        }
+        columnList.setLength(columnList.length() - 1);
+        paramList.setLength(paramList.length() - 1);
+        sourceList.setLength(sourceList.length() - 1);
+        StringBuilder updateList = new StringBuilder();
+        for (final ColumnMetadata column : columns) {
+            if (column.isPrimaryKey()) {
+                continue;
+            }
+            switch (dialect) {
+                case MYSQL:
+                    updateList.append(column.getName()).append("=VALUES(").append(column.getName()).append("),");
+                    break;
+                case POSTGRESQL:
+                    updateList.append(column.getName()).append("=EXCLUDED.").append(column.getName()).append(",");
+                    break;
+                default:
+                    updateList.append("target.").append(column.getName()).append("=source.").append(column.getName()).append(",");
+                    break;
+            }
+        }
+        if (updateList.length() > 0) {
+            updateList.setLength(updateList.length() - 1);
+        }
+        StringBuilder sql = new StringBuilder();
+        switch (dialect) {
+            case MYSQL:
+                sql.append("INSERT INTO ").append(table).append(" (").append(columnList).append(") VALUES (").append(paramList)
+                        .append(") ON DUPLICATE KEY UPDATE ");
+                sql.append(updateList.length() > 0 ? updateList : pk + "=" + pk);
+                break;
+            case POSTGRESQL:
+                sql.append("INSERT INTO ").append(table).append(" (").append(columnList).append(") VALUES (").append(paramList)
+                        .append(") ON CONFLICT (").append(pk).append(") ");
+                sql.append(updateList.length() > 0 ? "DO UPDATE SET " + updateList : "DO NOTHING");
+                break;
+            case H2:
+                sql.append("MERGE INTO ").append(table).append(" (").append(columnList).append(") KEY (").append(pk)
+                        .append(") VALUES (").append(paramList).append(")");
+                break;
+            case SQLSERVER:
+                sql.append("MERGE INTO ").append(table).append(" AS target USING (VALUES (").append(paramList)
+                        .append(")) AS source (").append(columnList).append(") ON target.").append(pk).append(" = source.").append(pk);
+                if (updateList.length() > 0) {
+                    sql.append(" WHEN MATCHED THEN UPDATE SET ").append(updateList);
+                }
+                sql.append(" WHEN NOT MATCHED THEN INSERT (").append(columnList).append(") VALUES (").append(sourceList).append(");");
+                break;
+            case ORACLE:
+                sql.append("MERGE INTO ").append(table).append(" target USING (SELECT ");
+                for (final ColumnMetadata column : columns) {
+                    sql.append("? ").append(column.getName()).append(",");
+                }
+                sql.setLength(sql.length() - 1);
+                sql.append(" FROM dual) source ON (target.").append(pk).append(" = source.").append(pk).append(")");
+                if (updateList.length() > 0) {
+                    sql.append(" WHEN MATCHED THEN UPDATE SET ").append(updateList);
+                }
+                sql.append(" WHEN NOT MATCHED THEN INSERT (").append(columnList).append(") VALUES (").append(sourceList).append(")");
+                break;
+            default:
+                throw new SQLException("Upsert is not supported for " + dialect);
+        }
+        return sql.toString();
+    }
+
+    public String getDeleteSql(EntityMetadata metadata) throws SQLException {
+        return getPrimaryKeySql(metadata, SqlOperation.DELETE, "DELETE FROM %s WHERE %s=?");
+    }
+
+    public String getFindByIdSql(EntityMetadata metadata) throws SQLException {
+        return getFindByIdSql(metadata, metadata.getColumns());
+    }
+
+    /**
+     * @return SELECT of only the given columns of the entity by primary key
+     */
+    public String getFindByIdSql(EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        if (metadata.getPrimaryKey() == null) {
             throw new SQLException("Primary Key not defined on entity");
         }
-        String findSQL = String.format("SELECT * FROM %s WHERE %s = ?", getTableName(entity), pkColumn);
-        PreparedStatement stmt = con.prepareStatement(findSQL);
-        stmt.setObject(1, pk);
-        return stmt;
+        GeneratedMapper generated = metadata.getGeneratedMapper();
+        if (generated != null && columns.size() == metadata.getColumns().size() && generated.getFindByIdSql() != null) {
+            return generated.getFindByIdSql();
+        }
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.FIND_BY_ID, columns);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            sql = getSelectSql(metadata, columns).append(" WHERE ").append(metadata.getPrimaryKey().getName())
+                    .append(" = ?").toString();
+            sqlCache.put(key, sql);
+        }
+        return sql;
     }
 
-    public PreparedStatement getExistsStatement(Connection con, Object entity) throws SQLException {
-        AbstractMap.SimpleEntry keyValue = getPrimaryKeyNameAndValue(entity);
-        if (keyValue == null) {
-            throw new SQLException("Primary Key cannot be empty");
+    /**
+     * SELECT listing the mapped columns rather than *, so unmapped columns are
+     * never sent by the database.
+     */
+    private StringBuilder getSelectSql(EntityMetadata metadata, List<ColumnMetadata> columns) throws SQLException {
+        if (columns.isEmpty()) {
+            throw new SQLException("No columns to select");
         }
-        String existsSQL = "SELECT COUNT(1) AS TOTAL FROM %s WHERE %s=?";
-        String sql = String.format(existsSQL, getTableName(entity), keyValue.getKey());
-        PreparedStatement stmt = con.prepareStatement(sql);
-        stmt.setObject(1, keyValue.getValue());
-        return stmt;
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(columns.get(i).getName());
+        }
+        return sql.append(" FROM ").append(metadata.getTableName());
     }
-    
-    private String getTableName(Object entity) {
-        String tableName = "";
-        TableName tableNameAnnotation = entity.getClass().getAnnotation(TableName.class);
-        if (tableNameAnnotation != null) {
-            tableName = tableNameAnnotation.value();
-        } else {
-            tableName = entity.getClass().getName();
+
+    /**
+     * @return SELECT ... WHERE pk IN (?,?,...) with idCount placeholders
+     */
+    public String getFindByIdsSql(EntityMetadata metadata, int idCount) throws SQLException {
+        if (metadata.getPrimaryKey() == null) {
+            throw new SQLException("Primary Key not defined on entity");
         }
-        return tableName;
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.FIND_BY_IDS, null, idCount);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            sql = getInListSql(metadata, metadata.getPrimaryKey(), idCount).toString();
+            sqlCache.put(key, sql);
+        }
+        return sql;
     }
 
-    private String getPrimaryKeyColumnName(Object entity) {
-        String pkField = getPrimaryKeyFieldName(entity);
-        if (pkField != null) {
-            try {
-                Field idField = entity.getClass().getField(pkField);
-                ColumnName columnName = idField.getAnnotation(ColumnName.class);
-                if (columnName != null) {
-                    return columnName.value();
-                }
-            } catch (NoSuchFieldException | SecurityException ex) {
-                //ignore;
+    /**
+     * @return SELECT ... WHERE column IN (?,?,...) with valueCount
+     * placeholders, ordered by the primary key if the entity has one
+     */
+    public String getFindByColumnSql(EntityMetadata metadata, ColumnMetadata column, int valueCount) throws SQLException {
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.FETCH,
+                Collections.singletonList(column), valueCount);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            StringBuilder sqlBuilder = getInListSql(metadata, column, valueCount);
+            if (metadata.getPrimaryKey() != null) {
+                sqlBuilder.append(" ORDER BY ").append(metadata.getPrimaryKey().getName());
             }
+            sql = sqlBuilder.toString();
+            sqlCache.put(key, sql);
         }
-        return null;
+        return sql;
     }
 
-    public AbstractMap.SimpleEntry getPrimaryKeyNameAndValue(Object entity) {
-        String pkField = getPrimaryKeyFieldName(entity);
-        if (pkField != null) {
-            try {
-                Field idField = entity.getClass().getField(pkField);
-                Object fieldValue = getFieldValue(idField, entity);
-                ColumnName columnName = idField.getAnnotation(ColumnName.class);
-                if (columnName != null && fieldValue != null) {
-                    return new AbstractMap.SimpleEntry(columnName.value(), fieldValue);
+    /**
+     * @return the number of IN list placeholders to prepare for valueCount
+     * values: the next power of two, capped at maxSize, so only a few SQL
+     * shapes are ever prepared. Callers repeat the last value as padding.
+     */
+    public int getPaddedInListSize(int valueCount, int maxSize) {
+        int paddedSize = 1;
+        while (paddedSize < valueCount) {
+            paddedSize <<= 1;
+        }
+        return Math.min(paddedSize, maxSize);
+    }
+
+    private StringBuilder getInListSql(EntityMetadata metadata, ColumnMetadata column, int valueCount) throws SQLException {
+        StringBuilder sqlBuilder = getSelectSql(metadata, metadata.getColumns())
+                .append(" WHERE ").append(column.getName()).append(" IN (");
+        for (int i = 0; i < valueCount; i++) {
+            sqlBuilder.append(i == 0 ? "?" : ",?");
+        }
+        return sqlBuilder.append(")");
+    }
+
+    /**
+     * @return a keyset page query ordered by the sort column, if any, then the
+     * primary key; with afterKey the rows after a given key, bound as
+     * sort, sort, pk or just pk, then the row limit
+     */
+    public String getPageSql(Dialect dialect, EntityMetadata metadata, ColumnMetadata sortColumn, boolean afterKey) throws SQLException {
+        if (metadata.getPrimaryKey() == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        List<ColumnMetadata> sortColumns = sortColumn == null ? null : Collections.singletonList(sortColumn);
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.PAGE, dialect, sortColumns, afterKey ? 1 : 0);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            String pk = metadata.getPrimaryKey().getName();
+            StringBuilder sqlBuilder = getSelectSql(metadata, metadata.getColumns());
+            if (sortColumn == null) {
+                if (afterKey) {
+                    sqlBuilder.append(" WHERE ").append(pk).append(" > ?");
+                }
+                sqlBuilder.append(" ORDER BY ").append(pk);
+            } else {
+                String sort = sortColumn.getName();
+                if (afterKey) {
+                    sqlBuilder.append(" WHERE (").append(sort).append(" > ? OR (").append(sort).append(" = ? AND ")
+                            .append(pk).append(" > ?))");
                 }
-            } catch (NoSuchFieldException | SecurityException ex) {
-                //ignore;
+                sqlBuilder.append(" ORDER BY ").append(sort).append(", ").append(pk);
             }
+            sql = sqlBuilder.append(dialect.getLimitClause()).toString();
+            sqlCache.put(key, sql);
         }
-        return null;
+        return sql;
     }
 
-    private String getPrimaryKeyFieldName(Object entity) {
-        final Field[] fields = entity.getClass().getDeclaredFields();
-        // first look for a @PK annotation
-        for (final Field field : fields) {
-            PK pk = field.getAnnotation(PK.class);
-            if (pk != null) {
-                return field.getName();
-            }
+    public String getKeyRangeSql(EntityMetadata metadata) throws SQLException {
+        return getPrimaryKeySql(metadata, SqlOperation.KEY_RANGE, "SELECT MIN(%2$s) AS MIN_KEY, MAX(%2$s) AS MAX_KEY FROM %1$s");
+    }
+
+    /**
+     * @return the rows with from <= pk <= to, in primary key order
+     */
+    public String getRangeSql(EntityMetadata metadata) throws SQLException {
+        if (metadata.getPrimaryKey() == null) {
+            throw new SQLException("Primary Key not defined on entity");
         }
-        try {
-            if (entity.getClass().getField("id") != null) {
-                return "id";
-            }
-        } catch (NoSuchFieldException | SecurityException ex) {
-            Logger.getLogger(PreparedStatementGenerator.class.getName()).log(Level.SEVERE, null, ex);
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), SqlOperation.RANGE, null);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            String pk = metadata.getPrimaryKey().getName();
+            sql = getSelectSql(metadata, metadata.getColumns()).append(" WHERE ").append(pk).append(" >= ? AND ")
+                    .append(pk).append(" <= ? ORDER BY ").append(pk).toString();
+            sqlCache.put(key, sql);
         }
-        return null;
+        return sql;
     }
 
-    private Object getFieldValue(final Field field, Object entity) {
-        try {
-            Class<?> clazz = field.getType();
+    public String getExistsSql(EntityMetadata metadata) throws SQLException {
+        return getPrimaryKeySql(metadata, SqlOperation.EXISTS, "SELECT COUNT(1) AS TOTAL FROM %s WHERE %s=?");
+    }
 
-            if (clazz.equals(Integer.TYPE)) {
-                return field.getInt(entity);
-            }
-            if (clazz.equals(Long.TYPE)) {
-                return field.getLong(entity);
-            }
-            if (clazz.equals(String.class)) {
-                return field.get(entity);
-            }
-            if (clazz.equals(Boolean.TYPE)) {
-                return field.getBoolean(entity);
-            }
-            if (clazz.equals(Float.TYPE)) {
-                return field.getFloat(entity);
+    private String getPrimaryKeySql(EntityMetadata metadata, SqlOperation operation, String template) throws SQLException {
+        if (metadata.getPrimaryKey() == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        GeneratedMapper generated = metadata.getGeneratedMapper();
+        if (generated != null && operation == SqlOperation.DELETE && generated.getDeleteSql() != null) {
+            return generated.getDeleteSql();
+        } else if (generated != null && operation == SqlOperation.EXISTS && generated.getExistsSql() != null) {
+            return generated.getExistsSql();
+        }
+        SqlTemplateCache.Key key = new SqlTemplateCache.Key(metadata.getEntityClass(), operation, null);
+        String sql = sqlCache.get(key);
+        if (sql == null) {
+            sql = String.format(template, metadata.getTableName(), metadata.getPrimaryKey().getName());
+            sqlCache.put(key, sql);
+        }
+        return sql;
+    }
+
+    public int bindColumns(PreparedStatement stmt, List<ColumnMetadata> columns, Object entity, int parameterIndex) throws SQLException {
+        GeneratedMapper generated = EntityMetadata.forEntity(entity).getGeneratedMapper();
+        if (generated != null) {
+            return generated.bindColumns(stmt, columns, entity, parameterIndex);
+        }
+        for (final ColumnMetadata column : columns) {
+            bindColumn(stmt, parameterIndex++, column, entity);
+        }
+        return parameterIndex;
+    }
+
+    /**
+     * Binds a column straight from the entity with the setter for its type, so
+     * primitive fields are never boxed and nulls are sent with their SQL type.
+     */
+    public void bindColumn(PreparedStatement stmt, int parameterIndex, ColumnMetadata column, Object entity) throws SQLException {
+        FieldAccessor accessor = column.getAccessor();
+        if (column.isPrimitive()) {
+            switch (column.getValueType()) {
+                case INT:
+                    stmt.setInt(parameterIndex, accessor.getInt(entity));
+                    return;
+                case LONG:
+                    stmt.setLong(parameterIndex, accessor.getLong(entity));
+                    return;
+                case DOUBLE:
+                    stmt.setDouble(parameterIndex, accessor.getDouble(entity));
+                    return;
+                case FLOAT:
+                    stmt.setFloat(parameterIndex, accessor.getFloat(entity));
+                    return;
+                case BOOLEAN:
+                    stmt.setBoolean(parameterIndex, accessor.getBoolean(entity));
+                    return;
+                default:
+                    break;
             }
-            if (clazz.equals(Double.TYPE)) {
-                return field.getDouble(entity);
+        }
+        Object value = accessor.get(entity);
+        if (value == null) {
+            setNull(stmt, parameterIndex, column);
+            return;
+        }
+        switch (column.getValueType()) {
+            case INT:
+                stmt.setInt(parameterIndex, (Integer) value);
+                break;
+            case LONG:
+                stmt.setLong(parameterIndex, (Long) value);
+                break;
+            case DOUBLE:
+                stmt.setDouble(parameterIndex, (Double) value);
+                break;
+            case FLOAT:
+                stmt.setFloat(parameterIndex, (Float) value);
+                break;
+            case BOOLEAN:
+                stmt.setBoolean(parameterIndex, (Boolean) value);
+                break;
+            case STRING:
+                stmt.setString(parameterIndex, (String) value);
+                break;
+            default:
+                setParameter(stmt, parameterIndex, value);
+                break;
+        }
+    }
+
+    /**
+     * Binds a null value of the column with its SQL type, when it is known.
+     */
+    public static void setNull(PreparedStatement stmt, int parameterIndex, ColumnMetadata column) throws SQLException {
+        if (column.getSqlType() == Types.NULL) {
+            stmt.setObject(parameterIndex, null);
+        } else {
+            stmt.setNull(parameterIndex, column.getSqlType());
+        }
+    }
+
+    /**
+     * Binds a single value. Dates and java.time values are converted to the
+     * JDBC date and time types, which every driver accepts.
+     */
+    public static void setParameter(PreparedStatement stmt, int parameterIndex, Object value) throws SQLException {
+        if (value instanceof java.util.Date) {
+            if (value instanceof Timestamp) {
+                stmt.setTimestamp(parameterIndex, (Timestamp) value);
+            } else if (value instanceof java.sql.Date) {
+                stmt.setDate(parameterIndex, (java.sql.Date) value);
+            } else if (value instanceof Time) {
+                stmt.setTime(parameterIndex, (Time) value);
+            } else {
+                stmt.setTimestamp(parameterIndex, new Timestamp(((java.util.Date) value).getTime()));
             }
-            if (clazz.equals(Date.class)) {
-                return field.get(entity);
+        } else if (value instanceof LocalDate) {
+            stmt.setDate(parameterIndex, java.sql.Date.valueOf((LocalDate) value));
+        } else if (value instanceof LocalDateTime) {
+            stmt.setTimestamp(parameterIndex, Timestamp.valueOf((LocalDateTime) value));
+        } else if (value instanceof LocalTime) {
+            stmt.setTime(parameterIndex, Time.valueOf((LocalTime) value));
+        } else if (value instanceof Instant) {
+            stmt.setTimestamp(parameterIndex, Timestamp.from((Instant) value));
+        } else if (value instanceof OffsetDateTime) {
+            stmt.setTimestamp(parameterIndex, Timestamp.from(((OffsetDateTime) value).toInstant()));
+        } else if (value instanceof ZonedDateTime) {
+            stmt.setTimestamp(parameterIndex, Timestamp.from(((ZonedDateTime) value).toInstant()));
+        } else {
+            stmt.setObject(parameterIndex, value);
+        }
+    }
+
+    public void bindUpdateParameters(PreparedStatement stmt, List<ColumnMetadata> columns, Object entity) throws SQLException {
+        int parameterIndex = bindColumns(stmt, columns, entity, 1);
+        bindPrimaryKey(stmt, entity, parameterIndex);
+    }
+
+    public void bindPrimaryKey(PreparedStatement stmt, Object entity, int parameterIndex) throws SQLException {
+        bindColumn(stmt, parameterIndex, requirePrimaryKey(entity), entity);
+    }
+
+    public PreparedStatement getDeleteStatement(Connection con, Object entity) throws SQLException {
+        ColumnMetadata pk = requirePrimaryKey(entity);
+        PreparedStatement stmt = prepare(con, getDeleteSql(EntityMetadata.forEntity(entity)));
+        bindColumn(stmt, 1, pk, entity);
+        return stmt;
+    }
+
+    public PreparedStatement getFindByIdStatement(Connection con, Object entity, Object pk) throws SQLException {
+        PreparedStatement stmt = prepare(con, getFindByIdSql(EntityMetadata.forEntity(entity)));
+        setParameter(stmt, 1, pk);
+        return stmt;
+    }
+
+    public PreparedStatement getFindByIdStatement(Connection con, EntityMetadata metadata, List<ColumnMetadata> columns, Object pk) throws SQLException {
+        PreparedStatement stmt = prepare(con, getFindByIdSql(metadata, columns));
+        setParameter(stmt, 1, pk);
+        return stmt;
+    }
+
+    public PreparedStatement getExistsStatement(Connection con, Object entity) throws SQLException {
+        ColumnMetadata pk = requirePrimaryKey(entity);
+        PreparedStatement stmt = prepare(con, getExistsSql(EntityMetadata.forEntity(entity)));
+        bindColumn(stmt, 1, pk, entity);
+        return stmt;
+    }
+
+    public SqlTemplateCache getSqlCache() {
+        return sqlCache;
+    }
+
+    private ColumnMetadata requirePrimaryKey(Object entity) throws SQLException {
+        ColumnMetadata pk = EntityMetadata.forEntity(entity).getPrimaryKey();
+        if (pk == null || (!pk.isPrimitive() && pk.getValue(entity) == null)) {
+            throw new SQLException("Primary Key cannot be empty");
+        }
+        return pk;
+    }
+
+    public AbstractMap.SimpleEntry getPrimaryKeyNameAndValue(Object entity) {
+        ColumnMetadata pk = EntityMetadata.forEntity(entity).getPrimaryKey();
+        if (pk != null) {
+            Object fieldValue = pk.getValue(entity);
+            if (fieldValue != null) {
+                return new AbstractMap.SimpleEntry(pk.getName(), fieldValue);
             }
-            return field.get(entity);
-        } catch (IllegalArgumentException | IllegalAccessException ex) {
-            Logger.getLogger(ResultSetMapper.class.getName()).log(Level.SEVERE, null, ex);
         }
         return null;
     }
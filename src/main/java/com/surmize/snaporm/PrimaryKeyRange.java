@@ -0,0 +1,57 @@
+package com.surmize.snaporm;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An inclusive range of numeric primary key values.
+ */
+public class PrimaryKeyRange {
+
+    private final long from;
+    private final long to;
+
+    public PrimaryKeyRange(long from, long to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return at most parts ranges of equal width covering min to max; the
+     * width is computed in BigInteger since the span of a long key may not
+     * fit in a long
+     */
+    static List<PrimaryKeyRange> split(long min, long max, int parts) {
+        List<PrimaryKeyRange> ranges = new ArrayList<>();
+        if (min > max) {
+            return ranges;
+        }
+        BigInteger from = BigInteger.valueOf(min);
+        BigInteger span = BigInteger.valueOf(max).subtract(from).add(BigInteger.ONE);
+        int count = span.min(BigInteger.valueOf(parts)).intValue();
+        BigInteger[] width = span.divideAndRemainder(BigInteger.valueOf(count));
+        for (int i = 0; i < count; i++) {
+            BigInteger to = from.add(width[0]).subtract(BigInteger.ONE);
+            if (i < width[1].intValue()) {
+                to = to.add(BigInteger.ONE);
+            }
+            ranges.add(new PrimaryKeyRange(from.longValue(), to.longValue()));
+            from = to.add(BigInteger.ONE);
+        }
+        return ranges;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + "]";
+    }
+}
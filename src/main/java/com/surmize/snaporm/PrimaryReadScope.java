@@ -0,0 +1,36 @@
+package com.surmize.snaporm;
+
+/**
+ * While open, reads made on the thread go to the primary, so they see the
+ * thread's own writes even when replicas lag behind. Scopes can be nested.
+ * <pre>
+ * try (PrimaryReadScope scope = DataSourceManager.getInstance().readFromPrimary()) {
+ *     dao.findEntityById(id);
+ * }
+ * </pre>
+ */
+public class PrimaryReadScope implements AutoCloseable {
+
+    private final ThreadLocal<int[]> depth;
+    private boolean closed;
+
+    PrimaryReadScope(ThreadLocal<int[]> depth) {
+        this.depth = depth;
+        int[] count = depth.get();
+        if (count == null) {
+            count = new int[1];
+            depth.set(count);
+        }
+        count[0]++;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (--depth.get()[0] == 0) {
+                depth.remove();
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.surmize.snaporm;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -8,30 +9,37 @@ import java.util.logging.Logger;
 
 public class PropertyManager {
 
-    private static Properties properties;
+    private static volatile Properties properties;
     
     private PropertyManager() {
     }
     
     private synchronized static void initialize() {
-        try {
-            properties = new Properties();
-            String environment = System.getenv("SNAPORM_ENV");
-            if("production".equalsIgnoreCase(environment)){
-                properties.load(PropertyManager.class.getResourceAsStream("/prod-snaporm.properties"));
-            }
-            else if("staging".equalsIgnoreCase(environment)){
-                properties.load(PropertyManager.class.getResourceAsStream("/stage-snaporm.properties"));
-            }
-            else if("test".equalsIgnoreCase(environment)){
-                properties.load(PropertyManager.class.getResourceAsStream("/test-snaporm.properties"));
-            }
-            else{
-                properties.load(PropertyManager.class.getResourceAsStream("/dev-snaporm.properties"));
+        Properties loaded = new Properties();
+        String environment = System.getenv("SNAPORM_ENV");
+        String propertyFile;
+        if("production".equalsIgnoreCase(environment)){
+            propertyFile = "/prod-snaporm.properties";
+        }
+        else if("staging".equalsIgnoreCase(environment)){
+            propertyFile = "/stage-snaporm.properties";
+        }
+        else if("test".equalsIgnoreCase(environment)){
+            propertyFile = "/test-snaporm.properties";
+        }
+        else{
+            propertyFile = "/dev-snaporm.properties";
+        }
+        try (InputStream in = PropertyManager.class.getResourceAsStream(propertyFile)) {
+            if (in == null) {
+                Logger.getLogger(PropertyManager.class.getName()).log(Level.WARNING, "{0} not found on classpath", propertyFile);
+            } else {
+                loaded.load(in);
             }
         } catch (IOException ex) {
             Logger.getLogger(PropertyManager.class.getName()).log(Level.SEVERE, null, ex);
         }
+        properties = loaded;
     }
 
 
@@ -47,10 +55,24 @@ public class PropertyManager {
     }
     
     public static Integer getIntegerSetting(String key) {
-        String prop = PropertyManager.getSetting(key, "-1" );
-        return Integer.parseInt( prop );
+        return getIntegerSetting(key, -1);
+    }
+
+    public static Integer getIntegerSetting(String key, int defaultValue) {
+        String prop = PropertyManager.getSetting(key, null );
+        return prop == null ? defaultValue : Integer.parseInt( prop.trim() );
     }
     
+    public static Long getLongSetting(String key, long defaultValue) {
+        String prop = PropertyManager.getSetting(key, null );
+        return prop == null ? defaultValue : Long.parseLong( prop.trim() );
+    }
+
+    public static Boolean getBooleanSetting(String key, boolean defaultValue) {
+        String prop = PropertyManager.getSetting(key, null );
+        return prop == null ? defaultValue : Boolean.parseBoolean( prop.trim() );
+    }
+
    private static Properties propertyFile(){
     	return properties;
     }
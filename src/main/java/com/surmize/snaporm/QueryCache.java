@@ -0,0 +1,350 @@
+package com.surmize.snaporm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Results of BaseDAO.executeSelect for DAOs with the query cache enabled,
+ * keyed by entity class, normalized SQL and parameter values. Each entry is
+ * tagged with the tables its SQL reads and is dropped when one of them is
+ * written through a DAO. Holds at most snaporm.QueryCacheSize results for
+ * snaporm.QueryCacheTtlSeconds each; results longer than
+ * snaporm.QueryCacheMaxRows are not cached.
+ */
+public class QueryCache {
+
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "where", "join", "inner", "left", "right", "full", "outer", "cross", "natural", "on", "using",
+            "group", "order", "having", "limit", "offset", "fetch", "union", "intersect", "except", "minus",
+            "for", "lock", "window", "straight_join"));
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "^\\s*(?:insert\\s+(?:ignore\\s+)?into|replace\\s+into|merge\\s+into|update(?:\\s+ignore)?|delete\\s+from|truncate(?:\\s+table)?)\\s+([\\w$.`\"\\[\\]]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final int maxRows;
+    private final LinkedHashMap<Key, CacheEntry> entries;
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    QueryCache(int maxSize, long ttl, TimeUnit unit, int maxRows) {
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxRows = maxRows;
+        this.entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+                if (size() > QueryCache.this.maxSize) {
+                    untag(eldest.getKey(), eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static QueryCache getInstance() {
+        return QueryCacheHolder.INSTANCE;
+    }
+
+    private static class QueryCacheHolder {
+        private static final QueryCache INSTANCE = new QueryCache(
+                PropertyManager.getIntegerSetting("snaporm.QueryCacheSize", 1000),
+                PropertyManager.getIntegerSetting("snaporm.QueryCacheTtlSeconds", 60), TimeUnit.SECONDS,
+                PropertyManager.getIntegerSetting("snaporm.QueryCacheMaxRows", 10000));
+    }
+
+    /**
+     * @return the cached results, which the caller must copy before handing
+     * them out, or null
+     */
+    synchronized List<?> get(Key key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.created > ttlNanos) {
+            entries.remove(key);
+            untag(key, entry);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.results;
+    }
+
+    /**
+     * @return a value to pass to put, taken before the query runs
+     */
+    synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Caches results the caller will not modify, unless a table was written
+     * since invalidationCount was taken: the query may have read the old rows.
+     */
+    synchronized void put(Key key, String entityTable, List<?> results, long invalidationCount) {
+        if (maxSize <= 0 || results.size() > maxRows || invalidations != invalidationCount) {
+            return;
+        }
+        Set<String> tables = getReadTables(key.sql);
+        tables.add(normalizeTable(entityTable));
+        CacheEntry previous = entries.put(key, new CacheEntry(results, tables, System.nanoTime()));
+        if (previous != null) {
+            untag(key, previous);
+        }
+        for (String table : tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys == null) {
+                keys = new HashSet<>();
+                keysByTable.put(table, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Drops every result that read the table, or every result when the table
+     * is null.
+     */
+    public synchronized void invalidate(String table) {
+        invalidations++;
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (table == null) {
+            clear();
+            return;
+        }
+        Set<Key> keys = keysByTable.remove(normalizeTable(table));
+        if (keys != null) {
+            for (Key key : keys) {
+                CacheEntry entry = entries.remove(key);
+                if (entry != null) {
+                    untag(key, entry);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+        keysByTable.clear();
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits, misses, evictions, entries.size());
+    }
+
+    private void untag(Key key, CacheEntry entry) {
+        for (String table : entry.tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the table an INSERT, REPLACE, MERGE, UPDATE, DELETE or TRUNCATE
+     * statement writes, or null if it is none of those
+     */
+    static String getWrittenTable(String sql) {
+        Matcher matcher = WRITTEN_TABLE.matcher(sql);
+        return matcher.find() ? normalizeTable(matcher.group(1)) : null;
+    }
+
+    /**
+     * @return the tables named after FROM and JOIN anywhere in the query,
+     * subqueries included
+     */
+    static Set<String> getReadTables(String sql) {
+        List<String> words = tokenize(sql);
+        Set<String> tables = new HashSet<>();
+        int i = 0;
+        while (i < words.size()) {
+            String word = words.get(i++);
+            boolean from = word.equalsIgnoreCase("from");
+            if (!from && !word.equalsIgnoreCase("join")) {
+                continue;
+            }
+            // table [[AS] alias] [, table [[AS] alias]]..., a subquery is read by the outer loop
+            while (i < words.size() && !isSeparator(words.get(i))) {
+                tables.add(normalizeTable(words.get(i++)));
+                if (i < words.size() && words.get(i).equalsIgnoreCase("as")) {
+                    i++;
+                }
+                if (i < words.size() && !isSeparator(words.get(i))) {
+                    i++;
+                }
+                if (!from || i >= words.size() || !words.get(i).equals(",")) {
+                    break;
+                }
+                i++;
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isSeparator(String word) {
+        return word.equals(",") || word.equals("(") || word.equals(")") || word.equals(";")
+                || CLAUSE_KEYWORDS.contains(word.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Splits SQL into identifiers, which may be quoted or dotted, and single
+     * punctuation characters. String literals are dropped.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (isIdentifierStart(c)) {
+                int start = i;
+                while (i < sql.length() && isIdentifierPart(sql.charAt(i))) {
+                    char q = sql.charAt(i);
+                    i = q == '`' || q == '"' ? skipQuoted(sql, i, q) : q == '[' ? skipQuoted(sql, i, ']') : i + 1;
+                }
+                words.add(sql.substring(start, Math.min(i, sql.length())));
+            } else {
+                words.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return words;
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int end = sql.indexOf(quote, start + 1);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '`' || c == '"' || c == '[';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || c == '.';
+    }
+
+    /**
+     * @return the unquoted, lower case table name without its schema
+     */
+    static String normalizeTable(String table) {
+        String name = table.substring(table.lastIndexOf('.') + 1);
+        if (name.length() >= 2 && "`\"[".indexOf(name.charAt(0)) >= 0) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Collapses whitespace outside quotes and drops a trailing semicolon, so
+     * the same query formatted differently shares one entry.
+     */
+    static String normalizeSql(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            if (quote == 0 && (c == '\'' || c == '"' || c == '`')) {
+                quote = c;
+            } else if (c == quote) {
+                quote = 0;
+            }
+            normalized.append(c);
+        }
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == ';' || normalized.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    static Key newKey(Class<?> entityClass, String sql, List<?> params) {
+        return new Key(entityClass, normalizeSql(sql), params == null ? new Object[0] : params.toArray());
+    }
+
+    static final class Key {
+
+        private final Class<?> entityClass;
+        private final String sql;
+        private final Object[] params;
+        private final int hash;
+
+        Key(Class<?> entityClass, String sql, Object[] params) {
+            this.entityClass = entityClass;
+            this.sql = sql;
+            this.params = params;
+            this.hash = 31 * (31 * entityClass.hashCode() + sql.hashCode()) + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && entityClass == other.entityClass && sql.equals(other.sql)
+                    && Arrays.deepEquals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final List<?> results;
+        private final Set<String> tables;
+        private final long created;
+
+        CacheEntry(List<?> results, Set<String> tables, long created) {
+            this.results = Collections.unmodifiableList(results);
+            this.tables = tables;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+
+public class QueryEvent {
+
+    private final Class<?> entityClass;
+    private final SqlOperation operation;
+    private final String sql;
+    private final long acquireNanos;
+    private final long executeNanos;
+    private final long mappingNanos;
+    private final long rows;
+    private final Throwable error;
+
+    public QueryEvent(Class<?> entityClass, SqlOperation operation, String sql, long acquireNanos,
+            long executeNanos, long mappingNanos, long rows, Throwable error) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.sql = sql;
+        this.acquireNanos = acquireNanos;
+        this.executeNanos = executeNanos;
+        this.mappingNanos = mappingNanos;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public SqlOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the statement text with ? placeholders; for batches and IN list
+     * loads, the last statement prepared
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return time spent waiting for a connection
+     */
+    public long getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    /**
+     * @return time from having a connection to the statement returning,
+     * including preparing and binding it
+     */
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * @return time spent reading and mapping rows; for streams, until the
+     * cursor was closed
+     */
+    public long getMappingNanos() {
+        return mappingNanos;
+    }
+
+    public long getTotalNanos() {
+        return acquireNanos + executeNanos + mappingNanos;
+    }
+
+    public double getTotalMillis() {
+        return (double) getTotalNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return rows read for queries, rows affected for writes
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryEvent{operation=" + operation + ", entityClass=" + (entityClass == null ? null : entityClass.getName())
+                + ", acquireNanos=" + acquireNanos + ", executeNanos=" + executeNanos + ", mappingNanos=" + mappingNanos
+                + ", rows=" + rows + ", error=" + error + ", sql=" + sql + "}";
+    }
+}
@@ -0,0 +1,10 @@
+package com.surmize.snaporm;
+
+/**
+ * Receives a QueryEvent after each statement run by a BaseDAO. Listeners are
+ * called on the thread that ran the statement and should return quickly.
+ */
+public interface QueryListener {
+
+    void queryExecuted(QueryEvent event);
+}
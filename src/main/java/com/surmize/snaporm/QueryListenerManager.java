@@ -0,0 +1,90 @@
+package com.surmize.snaporm;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of QueryListeners. When snaporm.SlowQueryMillis is set a
+ * SlowQueryLogger with that threshold is registered at startup. With no
+ * listeners, DAO calls only pay for one volatile read.
+ */
+public class QueryListenerManager {
+
+    private final List<QueryListener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<QueryTimer> currentTimer = new ThreadLocal<>();
+    private volatile boolean enabled;
+
+    private QueryListenerManager() {
+        long slowQueryMillis = PropertyManager.getLongSetting("snaporm.SlowQueryMillis", -1);
+        if (slowQueryMillis >= 0) {
+            addListener(new SlowQueryLogger(slowQueryMillis));
+        }
+    }
+
+    public static QueryListenerManager getInstance() {
+        return QueryListenerManagerHolder.INSTANCE;
+    }
+
+    private static class QueryListenerManagerHolder {
+        private static final QueryListenerManager INSTANCE = new QueryListenerManager();
+    }
+
+    public void addListener(QueryListener listener) {
+        listeners.add(listener);
+        enabled = true;
+    }
+
+    public void removeListener(QueryListener listener) {
+        listeners.remove(listener);
+        enabled = !listeners.isEmpty();
+    }
+
+    public List<QueryListener> getListeners() {
+        return listeners;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a timer bound to the current thread, or the inactive NOOP timer
+     * when no listener is registered
+     */
+    public QueryTimer start(Class<?> entityClass, SqlOperation operation) {
+        if (!enabled) {
+            return QueryTimer.NOOP;
+        }
+        QueryTimer timer = new QueryTimer(this, entityClass, operation);
+        timer.bind(currentTimer);
+        return timer;
+    }
+
+    /**
+     * Records the SQL of a statement being prepared on the thread's timer.
+     */
+    void prepared(String sql) {
+        if (enabled) {
+            QueryTimer timer = currentTimer.get();
+            if (timer != null) {
+                timer.setSql(sql);
+            }
+        }
+    }
+
+    ThreadLocal<QueryTimer> currentTimer() {
+        return currentTimer;
+    }
+
+    void fire(QueryEvent event) {
+        for (QueryListener listener : listeners) {
+            try {
+                listener.queryExecuted(event);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(QueryListenerManager.class.getName()).log(Level.WARNING, "QueryListener failed", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and latency histogram of one SQL template. Latencies fall into
+ * power of two buckets, so percentiles are upper bounds within a factor of two.
+ */
+public class QueryStatistics {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String sql;
+    private final long count;
+    private final long errors;
+    private final long rows;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] buckets;
+
+    public QueryStatistics(String sql, long count, long errors, long rows, long totalNanos, long maxNanos, long[] buckets) {
+        this.sql = sql;
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.buckets = buckets;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public double getMeanMillis() {
+        return count == 0 ? 0d : totalNanos / NANOS_PER_MILLI / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        for (long bucket : buckets) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0d;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100d);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0) {
+                return Math.min(bucketUpperBound(i), maxNanos) / NANOS_PER_MILLI;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    static int bucketOf(long nanos) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryStatistics{count=%d, errors=%d, rows=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms, sql=%s}",
+                count, errors, rows, getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis(), sql);
+    }
+}
@@ -0,0 +1,98 @@
+package com.surmize.snaporm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates timings per SQL template. Templates beyond maxTemplates, usually
+ * ad hoc SQL with literals in it, are counted under OTHER.
+ * <pre>
+ * QueryStatisticsCollector collector = new QueryStatisticsCollector();
+ * QueryListenerManager.getInstance().addListener(collector);
+ * </pre>
+ */
+public class QueryStatisticsCollector implements QueryListener {
+
+    public static final String OTHER = "(other)";
+
+    private final ConcurrentMap<String, Accumulator> templates = new ConcurrentHashMap<>();
+    private final int maxTemplates;
+
+    public QueryStatisticsCollector() {
+        this(PropertyManager.getIntegerSetting("snaporm.QueryStatisticsSize", 1000));
+    }
+
+    public QueryStatisticsCollector(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    @Override
+    public void queryExecuted(QueryEvent event) {
+        String sql = event.getSql() == null ? OTHER : event.getSql();
+        Accumulator accumulator = templates.get(sql);
+        if (accumulator == null) {
+            if (templates.size() >= maxTemplates) {
+                sql = OTHER;
+            }
+            accumulator = templates.computeIfAbsent(sql, Accumulator::new);
+        }
+        accumulator.add(event);
+    }
+
+    public Map<String, QueryStatistics> getStatistics() {
+        Map<String, QueryStatistics> statistics = new LinkedHashMap<>();
+        for (Accumulator accumulator : templates.values()) {
+            statistics.put(accumulator.sql, accumulator.snapshot());
+        }
+        return statistics;
+    }
+
+    public QueryStatistics getStatistics(String sql) {
+        Accumulator accumulator = templates.get(sql);
+        return accumulator == null ? null : accumulator.snapshot();
+    }
+
+    public void reset() {
+        templates.clear();
+    }
+
+    private static class Accumulator {
+
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        Accumulator(String sql) {
+            this.sql = sql;
+        }
+
+        void add(QueryEvent event) {
+            long nanos = event.getTotalNanos();
+            count.increment();
+            if (event.isFailed()) {
+                errors.increment();
+            }
+            rows.add(event.getRows());
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(Math.min(QueryStatistics.bucketOf(nanos), 63));
+        }
+
+        QueryStatistics snapshot() {
+            long[] copy = new long[buckets.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return new QueryStatistics(sql, count.sum(), errors.sum(), rows.sum(), totalNanos.sum(), maxNanos.get(), copy);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.surmize.snaporm;
+
+/**
+ * Times the phases of one DAO call and reports them to the registered
+ * QueryListeners when finished. While a timer is bound to its thread,
+ * statements prepared by PreparedStatementGenerator record their SQL on it.
+ * When no listener is registered every call gets the inactive NOOP timer.
+ */
+public class QueryTimer {
+
+    static final QueryTimer NOOP = new QueryTimer(null, null, null);
+
+    private final QueryListenerManager manager;
+    private final Class<?> entityClass;
+    private final SqlOperation operation;
+    private final long startNanos;
+    private QueryTimer previous;
+    private boolean bound;
+    private String sql;
+    private long acquiredNanos;
+    private long executedNanos;
+    private long rows;
+    private Throwable error;
+    private boolean finished;
+
+    QueryTimer(QueryListenerManager manager, Class<?> entityClass, SqlOperation operation) {
+        this.manager = manager;
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.startNanos = manager == null ? 0 : System.nanoTime();
+    }
+
+    void bind(ThreadLocal<QueryTimer> current) {
+        previous = current.get();
+        current.set(this);
+        bound = true;
+    }
+
+    private void unbind() {
+        if (bound) {
+            bound = false;
+            if (previous == null) {
+                manager.currentTimer().remove();
+            } else {
+                manager.currentTimer().set(previous);
+            }
+            previous = null;
+        }
+    }
+
+    public boolean isActive() {
+        return manager != null;
+    }
+
+    void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Marks the connection as borrowed.
+     */
+    public void acquired() {
+        if (manager != null && acquiredNanos == 0) {
+            acquiredNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the statement as executed; what follows until finish() is mapping.
+     */
+    public void executed() {
+        if (manager != null) {
+            executedNanos = System.nanoTime();
+            unbind();
+        }
+    }
+
+    public void addRows(long count) {
+        if (manager != null) {
+            rows += count;
+        }
+    }
+
+    public void failed(Throwable error) {
+        if (manager != null) {
+            this.error = error;
+        }
+    }
+
+    public void finish() {
+        if (manager == null || finished) {
+            return;
+        }
+        finished = true;
+        unbind();
+        long end = System.nanoTime();
+        long acquired = acquiredNanos == 0 ? startNanos : acquiredNanos;
+        long executed = executedNanos == 0 ? end : executedNanos;
+        manager.fire(new QueryEvent(entityClass, operation, sql, acquired - startNanos,
+                executed - acquired, end - executed, rows, error));
+    }
+}
@@ -0,0 +1,173 @@
+package com.surmize.snaporm;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ReflectionAccessorStrategy implements AccessorStrategy {
+
+    @Override
+    public FieldAccessor getFieldAccessor(Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (SecurityException ex) {
+            Logger.getLogger(ReflectionAccessorStrategy.class.getName()).log(Level.WARNING, null, ex);
+        }
+        return new ReflectionFieldAccessor(field);
+    }
+
+    @Override
+    public EntityInstantiator getInstantiator(Class<?> entityClass) {
+        try {
+            final Constructor<?> constructor = entityClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return new EntityInstantiator() {
+                @Override
+                public Object newInstance() throws SQLException {
+                    try {
+                        return constructor.newInstance();
+                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                        throw new SQLException("Invalid object type", e);
+                    }
+                }
+            };
+        } catch (NoSuchMethodException | SecurityException e) {
+            return new EntityInstantiator() {
+                @Override
+                public Object newInstance() throws SQLException {
+                    throw new SQLException("Invalid object type");
+                }
+            };
+        }
+    }
+
+    private static class ReflectionFieldAccessor implements FieldAccessor {
+
+        private final Field field;
+
+        ReflectionFieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        @Override
+        public Object get(Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return null;
+        }
+
+        @Override
+        public void set(Object entity, Object value) {
+            try {
+                field.set(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        @Override
+        public int getInt(Object entity) {
+            try {
+                return field.getInt(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return 0;
+        }
+
+        @Override
+        public void setInt(Object entity, int value) {
+            try {
+                field.setInt(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        @Override
+        public long getLong(Object entity) {
+            try {
+                return field.getLong(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return 0L;
+        }
+
+        @Override
+        public void setLong(Object entity, long value) {
+            try {
+                field.setLong(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        @Override
+        public double getDouble(Object entity) {
+            try {
+                return field.getDouble(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return 0d;
+        }
+
+        @Override
+        public void setDouble(Object entity, double value) {
+            try {
+                field.setDouble(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        @Override
+        public float getFloat(Object entity) {
+            try {
+                return field.getFloat(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return 0f;
+        }
+
+        @Override
+        public void setFloat(Object entity, float value) {
+            try {
+                field.setFloat(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object entity) {
+            try {
+                return field.getBoolean(entity);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+            return false;
+        }
+
+        @Override
+        public void setBoolean(Object entity, boolean value) {
+            try {
+                field.setBoolean(entity, value);
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                log(ex);
+            }
+        }
+
+        private void log(Exception ex) {
+            Logger.getLogger(ReflectionAccessorStrategy.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fills @OneToMany and @ManyToOne fields for a batch of entities with one IN
+ * query per relation and chunk of keys, then stitches the loaded entities onto
+ * their owners in memory. Paths such as "lines.product" load nested relations
+ * of the entities just loaded.
+ */
+class RelationLoader {
+
+    private final DataSourceManager dsMan;
+    private final ResultSetMapper mapper;
+    private final PreparedStatementGenerator statementGenerator;
+    private final QueryListenerManager queryListeners;
+    private final ChangeTracker changeTracker;
+
+    RelationLoader(DataSourceManager dsMan, ResultSetMapper mapper, PreparedStatementGenerator statementGenerator) {
+        this.dsMan = dsMan;
+        this.mapper = mapper;
+        this.statementGenerator = statementGenerator;
+        this.queryListeners = QueryListenerManager.getInstance();
+        this.changeTracker = ChangeTracker.getInstance();
+    }
+
+    void fetch(Connection con, Collection<?> owners, Class<?> ownerClass, String[] paths, int inListSize) throws SQLException {
+        Map<String, List<String>> nestedPaths = new LinkedHashMap<>();
+        for (String path : paths) {
+            int dot = path.indexOf('.');
+            List<String> nested = nestedPaths.computeIfAbsent(dot < 0 ? path : path.substring(0, dot), k -> new ArrayList<>());
+            if (dot >= 0) {
+                nested.add(path.substring(dot + 1));
+            }
+        }
+        EntityMetadata metadata = EntityMetadata.forClass(ownerClass);
+        for (Map.Entry<String, List<String>> entry : nestedPaths.entrySet()) {
+            RelationMetadata relation = metadata.getRelation(entry.getKey());
+            if (relation == null) {
+                throw new SQLException("Relation " + entry.getKey() + " is not mapped on " + ownerClass.getName());
+            }
+            if (relation.getTargetClass() == null) {
+                throw new SQLException("Relation " + entry.getKey() + " on " + ownerClass.getName() + " does not declare its element type");
+            }
+            List<Object> loaded = relation.isCollection()
+                    ? fetchMany(con, owners, metadata, relation, inListSize)
+                    : fetchOne(con, owners, metadata, relation, inListSize);
+            if (!entry.getValue().isEmpty() && !loaded.isEmpty()) {
+                fetch(con, loaded, relation.getTargetClass(), entry.getValue().toArray(new String[0]), inListSize);
+            }
+        }
+    }
+
+    private List<Object> fetchMany(Connection con, Collection<?> owners, EntityMetadata metadata,
+            RelationMetadata relation, int inListSize) throws SQLException {
+        ColumnMetadata ownerKey = metadata.getPrimaryKey();
+        if (ownerKey == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        EntityMetadata targetMetadata = EntityMetadata.forClass(relation.getTargetClass());
+        ColumnMetadata targetColumn = getMappedColumn(targetMetadata, relation.getColumnName());
+        Map<Object, Collection<Object>> byOwner = new HashMap<>();
+        List<Object> keys = new ArrayList<>();
+        for (Object owner : owners) {
+            Object key = targetColumn.convert(ownerKey.getValue(owner));
+            Collection<Object> targets = key == null ? null : byOwner.get(key);
+            if (targets == null) {
+                targets = relation.newCollection();
+                if (key != null) {
+                    byOwner.put(key, targets);
+                    keys.add(key);
+                }
+            }
+            relation.setValue(owner, targets);
+        }
+        List<Object> loaded = select(con, targetMetadata, targetColumn, keys, inListSize);
+        for (Object target : loaded) {
+            Collection<Object> targets = byOwner.get(targetColumn.getValue(target));
+            if (targets != null) {
+                targets.add(target);
+            }
+        }
+        return loaded;
+    }
+
+    private List<Object> fetchOne(Connection con, Collection<?> owners, EntityMetadata metadata,
+            RelationMetadata relation, int inListSize) throws SQLException {
+        ColumnMetadata foreignKey = getMappedColumn(metadata, relation.getColumnName());
+        EntityMetadata targetMetadata = EntityMetadata.forClass(relation.getTargetClass());
+        ColumnMetadata targetKey = targetMetadata.getPrimaryKey();
+        if (targetKey == null) {
+            throw new SQLException("Primary Key not defined on entity");
+        }
+        Set<Object> keys = new LinkedHashSet<>();
+        for (Object owner : owners) {
+            Object key = targetKey.convert(foreignKey.getValue(owner));
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        List<Object> loaded = select(con, targetMetadata, targetKey, new ArrayList<>(keys), inListSize);
+        Map<Object, Object> byKey = new HashMap<>();
+        for (Object target : loaded) {
+            byKey.put(targetKey.getValue(target), target);
+        }
+        for (Object owner : owners) {
+            Object key = targetKey.convert(foreignKey.getValue(owner));
+            relation.setValue(owner, key == null ? null : byKey.get(key));
+        }
+        return loaded;
+    }
+
+    private List<Object> select(Connection con, EntityMetadata metadata, ColumnMetadata column,
+            List<Object> keys, int inListSize) throws SQLException {
+        List<Object> results = new ArrayList<>();
+        if (keys.isEmpty()) {
+            return results;
+        }
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        QueryTimer timer = queryListeners.start(metadata.getEntityClass(), SqlOperation.FETCH);
+        try {
+            timer.acquired();
+            for (int start = 0; start < keys.size(); start += inListSize) {
+                List<Object> chunk = keys.subList(start, Math.min(start + inListSize, keys.size()));
+                int paddedSize = statementGenerator.getPaddedInListSize(chunk.size(), inListSize);
+                stmt = statementGenerator.prepare(con, statementGenerator.getFindByColumnSql(metadata, column, paddedSize));
+                for (int i = 0; i < paddedSize; i++) {
+                    PreparedStatementGenerator.setParameter(stmt, i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                rs = stmt.executeQuery();
+                RowMapper rowMapper = mapper.getRowMapper(rs, metadata.getEntityClass());
+                int rows = 0;
+                while (rs.next()) {
+                    Object entity = metadata.newInstance();
+                    rowMapper.mapRow(rs, entity);
+                    changeTracker.snapshot(entity);
+                    results.add(entity);
+                    rows++;
+                }
+                timer.addRows(rows);
+                dsMan.closeResultSet(rs);
+                dsMan.closeStatement(stmt);
+                rs = null;
+                stmt = null;
+            }
+        } catch (SQLException | RuntimeException ex) {
+            timer.failed(ex);
+            dsMan.checkDeadline(ex);
+            throw ex;
+        } finally {
+            dsMan.closeResultSet(rs);
+            dsMan.closeStatement(stmt);
+            timer.finish();
+        }
+        return results;
+    }
+
+    private static ColumnMetadata getMappedColumn(EntityMetadata metadata, String name) throws SQLException {
+        ColumnMetadata column = metadata.getColumn(name);
+        if (column == null) {
+            throw new SQLException("Column " + name + " is not mapped on " + metadata.getEntityClass().getName());
+        }
+        return column;
+    }
+}
@@ -0,0 +1,87 @@
+package com.surmize.snaporm;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A @OneToMany or @ManyToOne field. Target columns are looked up when the
+ * relation is loaded, since the target's metadata may not be built yet.
+ */
+public class RelationMetadata {
+
+    private final Field field;
+    private final boolean collection;
+    private final Class<?> targetClass;
+    private final String columnName;
+    private final FieldAccessor accessor;
+
+    RelationMetadata(Field field, boolean collection, String columnName, FieldAccessor accessor) {
+        this.field = field;
+        this.collection = collection;
+        this.targetClass = collection ? elementType(field) : field.getType();
+        this.columnName = columnName;
+        this.accessor = accessor;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return true for @OneToMany, false for @ManyToOne
+     */
+    public boolean isCollection() {
+        return collection;
+    }
+
+    /**
+     * @return the related entity class, or null if a @OneToMany field does not
+     * declare its element type
+     */
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * @return the mappedBy column of the target for @OneToMany, or the column
+     * of the owner holding the target's primary key for @ManyToOne
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public Object getValue(Object entity) {
+        return accessor.get(entity);
+    }
+
+    public void setValue(Object entity, Object value) {
+        accessor.set(entity, value);
+    }
+
+    Collection<Object> newCollection() {
+        if (Set.class.isAssignableFrom(field.getType())) {
+            return new LinkedHashSet<>();
+        }
+        return new ArrayList<>();
+    }
+
+    private static Class<?> elementType(Field field) {
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length == 1 && arguments[0] instanceof Class) {
+                return (Class<?>) arguments[0];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.surmize.snaporm;
+
+import java.util.List;
+
+public enum ReplicaBalancing {
+
+    ROUND_ROBIN, LEAST_BUSY;
+
+    /**
+     * Picks the replica for the next read. LEAST_BUSY takes the replica with
+     * the lowest share of its connections in use, starting the search at the
+     * round robin position so idle replicas share the load.
+     */
+    public ConnectionPool choose(List<ConnectionPool> replicas, int sequence) {
+        int start = Math.floorMod(sequence, replicas.size());
+        if (this == ROUND_ROBIN || replicas.size() == 1) {
+            return replicas.get(start);
+        }
+        ConnectionPool best = null;
+        double lowest = Double.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            ConnectionPool replica = replicas.get((start + i) % replicas.size());
+            double utilization = replica.getMetrics().getUtilization();
+            if (utilization < lowest) {
+                best = replica;
+                lowest = utilization;
+            }
+        }
+        return best;
+    }
+}
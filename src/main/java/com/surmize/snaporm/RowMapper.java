@@ -0,0 +1,193 @@
+package com.surmize.snaporm;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column-index plan for mapping the rows of one result set onto an entity
+ * class. Columns are resolved against the ResultSetMetaData once, so mapping a
+ * row is a straight run of typed getters by index.
+ */
+public class RowMapper {
+
+    private static volatile boolean nullWrappers = PropertyManager.getBooleanSetting("snaporm.NullWrappers", false);
+
+    private final EntityMetadata metadata;
+    private final ColumnMetadata[] columns;
+    private final int[] indexes;
+    private final GeneratedMapper generatedMapper;
+    private final int[] generatedIndexes;
+
+    public RowMapper(ResultSetMetaData rsmd, EntityMetadata metadata) throws SQLException {
+        this.metadata = metadata;
+        this.generatedMapper = metadata.getGeneratedMapper();
+        List<ColumnMetadata> mapped = new ArrayList<>();
+        List<Integer> mappedIndexes = new ArrayList<>();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            int index = findColumn(rsmd, column.getName());
+            if (index > 0 && column.getValueType() != ValueType.OTHER) {
+                mapped.add(column);
+                mappedIndexes.add(index);
+            }
+        }
+        columns = mapped.toArray(new ColumnMetadata[mapped.size()]);
+        indexes = new int[mappedIndexes.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = mappedIndexes.get(i);
+        }
+        if (generatedMapper != null) {
+            generatedIndexes = new int[metadata.getColumns().size()];
+            for (int i = 0; i < columns.length; i++) {
+                generatedIndexes[columns[i].getIndex()] = indexes[i];
+            }
+        } else {
+            generatedIndexes = null;
+        }
+    }
+
+    public static boolean isNullWrappers() {
+        return nullWrappers;
+    }
+
+    /**
+     * Sets whether Integer, Long, Double, Float and Boolean fields get null
+     * for SQL NULL. It is off unless snaporm.NullWrappers is true, and they
+     * get 0 or false, as primitive fields do.
+     */
+    public static void setNullWrappers(boolean nullWrappers) {
+        RowMapper.nullWrappers = nullWrappers;
+    }
+
+    /**
+     * @return whether SQL NULL is read as 0 or false into a field of the type
+     */
+    static boolean readsNullAsZero(ValueType type) {
+        switch (type) {
+            case INT:
+            case LONG:
+            case DOUBLE:
+            case FLOAT:
+            case BOOLEAN:
+                return !nullWrappers;
+            default:
+                return false;
+        }
+    }
+
+    public EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return the entity columns found in the result set, in getColumns() order
+     */
+    ColumnMetadata[] getMappedColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the result set index of each of getMappedColumns()
+     */
+    int[] getColumnIndexes() {
+        return indexes;
+    }
+
+    public void mapRow(ResultSet rs, Object entity) throws SQLException {
+        if (generatedMapper != null) {
+            generatedMapper.mapRow(rs, generatedIndexes, entity);
+            return;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            mapColumn(rs, indexes[i], columns[i], entity);
+        }
+    }
+
+    private void mapColumn(ResultSet rs, int index, ColumnMetadata column, Object entity) throws SQLException {
+        FieldAccessor accessor = column.getAccessor();
+        if (column.isPrimitive()) {
+            switch (column.getValueType()) {
+                case INT:
+                    accessor.setInt(entity, rs.getInt(index));
+                    break;
+                case LONG:
+                    accessor.setLong(entity, rs.getLong(index));
+                    break;
+                case DOUBLE:
+                    accessor.setDouble(entity, rs.getDouble(index));
+                    break;
+                case FLOAT:
+                    accessor.setFloat(entity, rs.getFloat(index));
+                    break;
+                case BOOLEAN:
+                    accessor.setBoolean(entity, rs.getBoolean(index));
+                    break;
+                default:
+                    break;
+            }
+            return;
+        }
+        Object value;
+        switch (column.getValueType()) {
+            case INT:
+                value = rs.getInt(index);
+                break;
+            case LONG:
+                value = rs.getLong(index);
+                break;
+            case DOUBLE:
+                value = rs.getDouble(index);
+                break;
+            case FLOAT:
+                value = rs.getFloat(index);
+                break;
+            case BOOLEAN:
+                value = rs.getBoolean(index);
+                break;
+            case STRING:
+                accessor.set(entity, rs.getString(index));
+                return;
+            case DATE:
+                accessor.set(entity, rs.getDate(index));
+                return;
+            case LOCAL_DATE:
+                java.sql.Date date = rs.getDate(index);
+                accessor.set(entity, date == null ? null : date.toLocalDate());
+                return;
+            case LOCAL_DATE_TIME:
+                Timestamp timestamp = rs.getTimestamp(index);
+                accessor.set(entity, timestamp == null ? null : timestamp.toLocalDateTime());
+                return;
+            case LOCAL_TIME:
+                Time time = rs.getTime(index);
+                accessor.set(entity, time == null ? null : time.toLocalTime());
+                return;
+            case INSTANT:
+                Timestamp instant = rs.getTimestamp(index);
+                accessor.set(entity, instant == null ? null : instant.toInstant());
+                return;
+            default:
+                return;
+        }
+        accessor.set(entity, nullWrappers && rs.wasNull() ? null : value);
+    }
+
+    private static int findColumn(ResultSetMetaData rsmd, String columnName) throws SQLException {
+        int columns = rsmd.getColumnCount();
+        for (int x = 1; x <= columns; x++) {
+            if (columnName.equalsIgnoreCase(rsmd.getColumnLabel(x))) {
+                return x;
+            }
+        }
+        for (int x = 1; x <= columns; x++) {
+            if (columnName.equalsIgnoreCase(rsmd.getColumnName(x))) {
+                return x;
+            }
+        }
+        return 0;
+    }
+}
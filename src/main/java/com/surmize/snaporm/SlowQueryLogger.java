@@ -0,0 +1,32 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs a warning for every statement that takes longer than the threshold,
+ * connection wait included.
+ */
+public class SlowQueryLogger implements QueryListener {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowQueryLogger.class.getName());
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long thresholdNanos;
+
+    public SlowQueryLogger(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    @Override
+    public void queryExecuted(QueryEvent event) {
+        if (event.getTotalNanos() >= thresholdNanos && LOGGER.isLoggable(Level.WARNING)) {
+            LOGGER.log(Level.WARNING, String.format(
+                    "Slow %s %.1f ms (acquire %.1f, execute %.1f, mapping %.1f) rows %d%s: %s",
+                    event.getOperation(), event.getTotalMillis(), event.getAcquireNanos() / NANOS_PER_MILLI,
+                    event.getExecuteNanos() / NANOS_PER_MILLI, event.getMappingNanos() / NANOS_PER_MILLI,
+                    event.getRows(), event.isFailed() ? " failed" : "", event.getSql()));
+        }
+    }
+}
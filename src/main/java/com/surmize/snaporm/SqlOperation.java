@@ -0,0 +1,6 @@
+package com.surmize.snaporm;
+
+public enum SqlOperation {
+
+    INSERT, UPDATE, UPSERT, DELETE, FIND_BY_ID, FIND_BY_IDS, EXISTS, SELECT, EXECUTE, PAGE, KEY_RANGE, RANGE, FETCH, BATCH
+}
@@ -0,0 +1,150 @@
+package com.surmize.snaporm;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generated SQL keyed by entity class, operation, the set of columns the
+ * statement binds and, for SQL that differs between databases, the dialect. Returning the identical string for the same shape lets the
+ * driver and pool statement caches (cachePrepStmts/useServerPrepStmts on
+ * MySQL) find their entries. Holds at most snaporm.SqlCacheSize templates.
+ */
+public class SqlTemplateCache {
+
+    private final ConcurrentMap<Key, String> templates = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maxSize;
+
+    SqlTemplateCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static SqlTemplateCache getInstance() {
+        return SqlTemplateCacheHolder.INSTANCE;
+    }
+
+    private static class SqlTemplateCacheHolder {
+        private static final SqlTemplateCache INSTANCE = new SqlTemplateCache(PropertyManager.getIntegerSetting("snaporm.SqlCacheSize", 1000));
+    }
+
+    public String get(Key key) {
+        String sql = templates.get(key);
+        if (sql == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return sql;
+    }
+
+    public void put(Key key, String sql) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (templates.size() >= maxSize && !templates.containsKey(key)) {
+            Iterator<Key> it = templates.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+        templates.put(key, sql);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (templates.size() > maxSize) {
+            clear();
+        }
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public static class Key {
+
+        private final Class<?> entityClass;
+        private final SqlOperation operation;
+        private final Dialect dialect;
+        private final BitSet columns;
+        private final int parameterCount;
+        private final int hash;
+
+        public Key(Class<?> entityClass, SqlOperation operation, List<ColumnMetadata> columnList) {
+            this(entityClass, operation, columnList, 0);
+        }
+
+        public Key(Class<?> entityClass, SqlOperation operation, List<ColumnMetadata> columnList, int parameterCount) {
+            this(entityClass, operation, null, columnList, parameterCount);
+        }
+
+        public Key(Class<?> entityClass, SqlOperation operation, Dialect dialect, List<ColumnMetadata> columnList, int parameterCount) {
+            this.entityClass = entityClass;
+            this.operation = operation;
+            this.dialect = dialect;
+            this.parameterCount = parameterCount;
+            this.columns = new BitSet();
+            if (columnList != null) {
+                for (ColumnMetadata column : columnList) {
+                    if (column.getIndex() >= 0) {
+                        columns.set(column.getIndex());
+                    }
+                }
+            }
+            this.hash = 31 * (31 * (31 * (31 * entityClass.hashCode() + operation.hashCode())
+                    + (dialect == null ? 0 : dialect.hashCode())) + columns.hashCode()) + parameterCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return entityClass == other.entityClass && operation == other.operation && dialect == other.dialect
+                    && parameterCount == other.parameterCount && columns.equals(other.columns);
+        }
+    }
+}
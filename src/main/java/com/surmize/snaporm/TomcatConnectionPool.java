@@ -0,0 +1,113 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+public class TomcatConnectionPool extends AbstractConnectionPool {
+
+    private final DataSource datasource;
+
+    public TomcatConnectionPool(PoolConfig config) {
+        super(config);
+        PoolProperties p = new PoolProperties();
+        p.setName(config.getName());
+        p.setUrl( config.getUrl() );
+        p.setDriverClassName( config.getDriverClassName() );
+        p.setUsername( config.getUsername() );
+        p.setPassword( config.getPassword() );
+        p.setJmxEnabled( config.isJmxEnabled() );
+        p.setTestWhileIdle( config.isTestWhileIdle() );
+        p.setTestOnBorrow( config.isTestOnBorrow() );
+        p.setValidationQuery( config.getValidationQuery() );
+        p.setTestOnReturn( config.isTestOnReturn() );
+        p.setValidationInterval( config.getValidationInterval() );
+        p.setTimeBetweenEvictionRunsMillis( config.getTimeBetweenEvictionRunsMillis() );
+        p.setMaxActive( config.getMaxActive() );
+        p.setMaxIdle( config.getMaxActive() );
+        p.setInitialSize( config.getInitialSize() );
+        p.setMaxWait( config.getMaxWait() );
+        p.setRemoveAbandonedTimeout( config.getRemoveAbandonedTimeout() );
+        p.setMinEvictableIdleTimeMillis( config.getMinEvictableIdleTimeMillis() );
+        p.setMinIdle( Math.min(config.getMinIdle(), config.getMaxActive()) );
+        p.setLogAbandoned( config.isLogAbandoned() );
+        p.setRemoveAbandoned( config.isRemoveAbandoned() );
+        if (config.getJdbcInterceptors() != null) {
+            p.setJdbcInterceptors( config.getJdbcInterceptors() );
+        }
+        datasource = new DataSource();
+        datasource.setPoolProperties(p);
+    }
+
+    @Override
+    protected Connection borrowConnection() throws SQLException {
+        return datasource.getConnection();
+    }
+
+    /**
+     * Waits on the pool's fair queue; a connection handed over after the
+     * timeout goes back to the pool.
+     */
+    @Override
+    protected Connection borrowConnection(long timeoutMillis) throws SQLException {
+        if (timeoutMillis >= config.getMaxWait() || !datasource.isFairQueue()) {
+            return borrowConnection();
+        }
+        Future<Connection> future = datasource.getConnectionAsync();
+        try {
+            Connection con = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (con == null) {
+                throw new SQLException("No connection available");
+            }
+            return con;
+        } catch (TimeoutException ex) {
+            future.cancel(false);
+            throw new SQLTimeoutException("No connection available within " + timeoutMillis + " ms", ex);
+        } catch (InterruptedException ex) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            }
+            throw new SQLException(ex.getCause());
+        }
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return datasource;
+    }
+
+    @Override
+    public void warmUp() throws SQLException {
+        datasource.createPool();
+    }
+
+    @Override
+    protected int getActive() {
+        return datasource.getActive();
+    }
+
+    @Override
+    protected int getIdle() {
+        return datasource.getIdle();
+    }
+
+    @Override
+    protected int getWaiting() {
+        return datasource.getWaitCount();
+    }
+
+    @Override
+    public void close() {
+        datasource.close();
+    }
+}
@@ -0,0 +1,16 @@
+package com.surmize.snaporm;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Remembers the column values of entities as they are loaded or written, so
+ * updateEntity and updateAll only write the columns that changed since, nulls
+ * included, and skip entities with no changes.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface TrackChanges {
+}
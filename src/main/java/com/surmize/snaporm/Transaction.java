@@ -0,0 +1,240 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A unit of work bound to the thread that began it. Every BaseDAO call made on
+ * that thread shares one connection, borrowed on first use, and its writes are
+ * committed together.
+ *
+ * With batchWrites enabled, insertEntity, updateEntity and deleteByPrimaryKey
+ * queue their statements instead of executing them. Consecutive writes with
+ * the same SQL are sent as one JDBC batch when the SQL changes, when
+ * maxBatchSize statements are queued, before any other statement runs on the
+ * connection, and on flush() or commit().
+ *
+ * <pre>
+ * try (Transaction tx = DataSourceManager.getInstance().beginTransaction()) {
+ *     orderDao.insertEntity(order);
+ *     lineDao.insertAll(lines);
+ *     tx.commit();
+ * }
+ * </pre>
+ */
+public class Transaction implements AutoCloseable {
+
+    private final DataSourceManager dsMan;
+    private final boolean batchWrites;
+    private final int maxBatchSize;
+    private Connection connection;
+    private boolean previousAutoCommit;
+    private String pendingSql;
+    private EntityMetadata pendingMetadata;
+    private PreparedStatement pendingStatement;
+    private int pendingCount;
+    private boolean completed;
+    private Set<String> writtenTables;
+    private Map<EntityCache, Set<Object>> evictedEntities;
+
+    Transaction(DataSourceManager dsMan, boolean batchWrites, int maxBatchSize) {
+        this.dsMan = dsMan;
+        this.batchWrites = batchWrites;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isBatchingWrites() {
+        return batchWrites;
+    }
+
+    public boolean isActive() {
+        return !completed;
+    }
+
+    Connection getConnection() throws SQLException {
+        if (completed) {
+            throw new SQLException("Transaction has already completed");
+        }
+        if (connection == null) {
+            Connection con = dsMan.getPooledConnection();
+            try {
+                previousAutoCommit = con.getAutoCommit();
+                con.setAutoCommit(false);
+            } catch (SQLException ex) {
+                dsMan.closePooledConnection(con);
+                throw ex;
+            }
+            connection = con;
+        }
+        return connection;
+    }
+
+    /**
+     * Records a table written in the transaction so that results the query
+     * cache took from other connections before the commit are dropped at the
+     * end; null stands for an unknown table.
+     */
+    void tableWritten(String table) {
+        if (writtenTables == null) {
+            writtenTables = new HashSet<>();
+        }
+        writtenTables.add(table);
+    }
+
+    /**
+     * Records an entity evicted in the transaction so that it is evicted from
+     * the cache again at the end; a null key stands for every entity.
+     */
+    void entityEvicted(EntityCache cache, Object key) {
+        if (evictedEntities == null) {
+            evictedEntities = new HashMap<>();
+        }
+        Set<Object> keys = evictedEntities.get(cache);
+        if (key == null) {
+            evictedEntities.put(cache, null);
+        } else if (keys != null || !evictedEntities.containsKey(cache)) {
+            if (keys == null) {
+                keys = new HashSet<>();
+                evictedEntities.put(cache, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    boolean owns(Connection con) {
+        return con != null && con == connection;
+    }
+
+    /**
+     * @return a statement for the SQL with any earlier writes of a different
+     * shape already flushed; bind it and call addBatch()
+     */
+    PreparedStatement prepareBatch(EntityMetadata metadata, String sql) throws SQLException {
+        if (pendingStatement != null && !pendingSql.equals(sql)) {
+            flush();
+            dsMan.closeStatement(pendingStatement);
+            pendingStatement = null;
+            pendingSql = null;
+            pendingMetadata = null;
+        }
+        if (pendingStatement == null) {
+            pendingStatement = getConnection().prepareStatement(sql);
+            pendingSql = sql;
+            pendingMetadata = metadata;
+        }
+        return pendingStatement;
+    }
+
+    void addBatch() throws SQLException {
+        pendingStatement.addBatch();
+        pendingCount++;
+        if (pendingCount >= maxBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends any queued writes to the database without committing them,
+     * reported to the QueryListeners as one BATCH statement.
+     */
+    public void flush() throws SQLException {
+        if (pendingStatement != null && pendingCount > 0) {
+            QueryTimer timer = QueryListenerManager.getInstance().start(pendingMetadata.getEntityClass(), SqlOperation.BATCH);
+            timer.setSql(pendingSql);
+            timer.acquired();
+            dsMan.applyDeadline(pendingStatement);
+            try {
+                int rows = 0;
+                for (int count : pendingStatement.executeBatch()) {
+                    rows += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+                }
+                pendingCount = 0;
+                timer.executed();
+                timer.addRows(rows);
+            } catch (SQLException | RuntimeException ex) {
+                timer.failed(ex);
+                dsMan.checkDeadline(ex);
+                throw ex;
+            } finally {
+                dsMan.clearDeadline(pendingStatement);
+                timer.finish();
+                String table = pendingMetadata.getTableName();
+                QueryCache.getInstance().invalidate(table);
+                tableWritten(table);
+            }
+        }
+    }
+
+    public void commit() throws SQLException {
+        try {
+            flush();
+            if (connection != null) {
+                connection.commit();
+            }
+        } catch (SQLException ex) {
+            rollback();
+            throw ex;
+        }
+        end();
+    }
+
+    public void rollback() throws SQLException {
+        if (completed) {
+            return;
+        }
+        try {
+            if (connection != null) {
+                connection.rollback();
+            }
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Rolls back unless commit() or rollback() was already called.
+     */
+    @Override
+    public void close() throws SQLException {
+        rollback();
+    }
+
+    private void end() {
+        completed = true;
+        pendingCount = 0;
+        dsMan.closeStatement(pendingStatement);
+        pendingStatement = null;
+        pendingSql = null;
+        pendingMetadata = null;
+        dsMan.endTransaction(this);
+        if (connection != null) {
+            dsMan.restoreAutoCommit(connection, previousAutoCommit);
+            dsMan.closePooledConnection(connection);
+            connection = null;
+        }
+        if (writtenTables != null) {
+            for (String table : writtenTables) {
+                QueryCache.getInstance().invalidate(table);
+            }
+            writtenTables = null;
+        }
+        if (evictedEntities != null) {
+            for (Map.Entry<EntityCache, Set<Object>> evicted : evictedEntities.entrySet()) {
+                if (evicted.getValue() == null) {
+                    evicted.getKey().clear();
+                } else {
+                    for (Object key : evicted.getValue()) {
+                        evicted.getKey().invalidate(key);
+                    }
+                }
+            }
+            evictedEntities = null;
+        }
+    }
+}
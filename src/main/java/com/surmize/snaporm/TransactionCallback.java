@@ -0,0 +1,8 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+
+public interface TransactionCallback<R> {
+
+    R doInTransaction(Transaction transaction) throws SQLException;
+}
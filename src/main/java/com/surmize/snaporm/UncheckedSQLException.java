@@ -0,0 +1,21 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an SQLException thrown where a checked exception is not allowed, such
+ * as inside an Iterator or Stream.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
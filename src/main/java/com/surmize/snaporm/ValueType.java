@@ -0,0 +1,39 @@
+package com.surmize.snaporm;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+
+public enum ValueType {
+
+    INT, LONG, DOUBLE, FLOAT, BOOLEAN, STRING, DATE, LOCAL_DATE, LOCAL_DATE_TIME, LOCAL_TIME, INSTANT, OTHER;
+
+    public static ValueType of(Class<?> clazz) {
+        if (clazz.equals(Integer.TYPE) || clazz.equals(Integer.class)) {
+            return INT;
+        } else if (clazz.equals(Long.TYPE) || clazz.equals(Long.class)) {
+            return LONG;
+        } else if (clazz.equals(String.class)) {
+            return STRING;
+        } else if (clazz.equals(Boolean.TYPE) || clazz.equals(Boolean.class)) {
+            return BOOLEAN;
+        } else if (clazz.equals(Float.TYPE) || clazz.equals(Float.class)) {
+            return FLOAT;
+        } else if (clazz.equals(Double.TYPE) || clazz.equals(Double.class)) {
+            return DOUBLE;
+        } else if (clazz.equals(Date.class)) {
+            return DATE;
+        } else if (clazz.equals(LocalDate.class)) {
+            return LOCAL_DATE;
+        } else if (clazz.equals(LocalDateTime.class)) {
+            return LOCAL_DATE_TIME;
+        } else if (clazz.equals(LocalTime.class)) {
+            return LOCAL_TIME;
+        } else if (clazz.equals(Instant.class)) {
+            return INSTANT;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,135 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchWriteTest {
+
+    @TableName("batch_items")
+    public static class Item {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+        @ColumnName("qty")
+        public int qty;
+
+        public Item() {
+        }
+
+        Item(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class ItemDAO extends BaseDAO<Item> {
+    }
+
+    private final ItemDAO dao = new ItemDAO();
+
+    @Before
+    public void createTable() throws SQLException {
+        TestDatabase.execute("DROP TABLE IF EXISTS batch_items",
+                "CREATE TABLE batch_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(20), qty INT)");
+        dao.setBatchSize(3);
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(null, "item" + i));
+        }
+        return items;
+    }
+
+    @Test
+    public void insertAllAtBatchSizeBoundaries() throws SQLException {
+        int total = 0;
+        for (int count : new int[]{0, 1, 2, 3, 4, 6, 7}) {
+            assertEquals(count, dao.insertAll(items(count)));
+            total += count;
+            assertEquals(total, TestDatabase.count("batch_items"));
+        }
+    }
+
+    @Test
+    public void generatedKeysAreWrittenBackInOrderAcrossChunks() throws SQLException {
+        List<Item> items = items(8);
+        dao.insertAll(items);
+        long previous = 0;
+        for (Item item : items) {
+            assertNotNull(item.id);
+            assertTrue(item.id > previous);
+            previous = item.id;
+            assertEquals(item.name, dao.findEntityById(item.id).name);
+        }
+    }
+
+    @Test
+    public void keysAreWrittenBackPerStatementShape() throws SQLException {
+        // a null name leaves the column out, so the two shapes are separate batches
+        List<Item> items = items(7);
+        for (int i = 0; i < items.size(); i += 2) {
+            items.get(i).name = null;
+            items.get(i).qty = i;
+        }
+        dao.insertAll(items);
+        for (Item item : items) {
+            Item found = dao.findEntityById(item.id);
+            assertEquals(item.name, found.name);
+            assertEquals(item.qty, found.qty);
+        }
+    }
+
+    @Test
+    public void updateAllAndDeleteAllCountEachEntityOnce() throws SQLException {
+        List<Item> items = items(7);
+        dao.insertAll(items);
+        for (Item item : items) {
+            item.qty = 5;
+        }
+        assertEquals(7, dao.updateAll(items));
+        assertEquals(7, dao.executeSelect("SELECT * FROM batch_items WHERE qty = 5").size());
+        assertEquals(4, dao.deleteAll(items.subList(0, 4)));
+        assertEquals(3, TestDatabase.count("batch_items"));
+    }
+
+    @Test
+    public void failedBatchRollsBackEarlierChunks() throws SQLException {
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= 7; id++) {
+            items.add(new Item(id, "item" + id));
+        }
+        // the duplicate key fails the second chunk after the first was sent
+        items.get(4).id = 1L;
+        try {
+            dao.insertAll(items);
+            fail("duplicate key was inserted");
+        } catch (SQLException expected) {
+        }
+        assertEquals(0, TestDatabase.count("batch_items"));
+    }
+
+    @Test
+    public void batchWritesJoinTheThreadTransaction() throws SQLException {
+        try (Transaction tx = DataSourceManager.getInstance().beginTransaction()) {
+            assertEquals(5, dao.insertAll(items(5)));
+            assertEquals(5, dao.executeSelect("SELECT * FROM batch_items").size());
+            tx.rollback();
+        }
+        assertEquals(0, TestDatabase.count("batch_items"));
+        DataSourceManager.getInstance().inTransaction(tx -> dao.insertAll(Arrays.asList(new Item(null, "a"), new Item(null, "b"))));
+        assertEquals(2, TestDatabase.count("batch_items"));
+    }
+}
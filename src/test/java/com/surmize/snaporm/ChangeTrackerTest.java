@@ -0,0 +1,188 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeTrackerTest {
+
+    @TrackChanges
+    @TableName("tracked_items")
+    public static class Item {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+        @ColumnName("qty")
+        public int qty;
+        @ColumnName("updated")
+        public Date updated;
+        @ColumnName("data")
+        public byte[] data;
+
+        public Item() {
+        }
+
+        Item(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        // equal by key, so only identity tells two loaded copies apart
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Item && ((Item) obj).id != null && ((Item) obj).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id == null ? 0 : id.hashCode();
+        }
+    }
+
+    public static class ItemDAO extends BaseDAO<Item> {
+    }
+
+    @TableName("tracked_items")
+    public static class UntrackedItem {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+    }
+
+    private final ChangeTracker tracker = ChangeTracker.getInstance();
+    private final ItemDAO dao = new ItemDAO();
+
+    @Before
+    public void createTable() throws SQLException {
+        TestDatabase.execute("DROP TABLE IF EXISTS tracked_items",
+                "CREATE TABLE tracked_items (id BIGINT PRIMARY KEY, name VARCHAR(20), qty INT, updated TIMESTAMP, data VARBINARY(16))");
+    }
+
+    private static List<String> names(List<ColumnMetadata> columns) {
+        List<String> names = new ArrayList<>();
+        for (ColumnMetadata column : columns) {
+            names.add(column.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Test
+    public void entityWithoutSnapshotHasNoChangedColumns() {
+        Item item = new Item(1L, "a");
+        assertFalse(tracker.isTracked(item));
+        assertNull(tracker.getChangedColumns(item));
+    }
+
+    @Test
+    public void untrackedClassIsNeverSnapshotted() {
+        UntrackedItem item = new UntrackedItem();
+        item.id = 1L;
+        tracker.snapshot(item);
+        assertFalse(tracker.isTracked(item));
+    }
+
+    @Test
+    public void diffListsChangedNonKeyColumns() {
+        Item item = new Item(1L, "a");
+        tracker.snapshot(item);
+        assertTrue(tracker.getChangedColumns(item).isEmpty());
+        item.name = "b";
+        item.qty = 3;
+        item.id = 2L;
+        assertEquals(Arrays.asList("name", "qty"), names(tracker.getChangedColumns(item)));
+        item.name = null;
+        assertEquals(Arrays.asList("name", "qty"), names(tracker.getChangedColumns(item)));
+        tracker.forget(item);
+        assertFalse(tracker.isTracked(item));
+    }
+
+    @Test
+    public void datesAndArraysAreCopiedSoInPlaceChangesShow() {
+        Item item = new Item(1L, "a");
+        item.updated = new Date(1000);
+        item.data = new byte[]{1, 2};
+        tracker.snapshot(item);
+        assertTrue(tracker.getChangedColumns(item).isEmpty());
+        item.updated.setTime(2000);
+        item.data[0] = 9;
+        assertEquals(Arrays.asList("data", "updated"), names(tracker.getChangedColumns(item)));
+        item.data = new byte[]{1, 2};
+        item.updated = new Date(1000);
+        assertTrue(tracker.getChangedColumns(item).isEmpty());
+    }
+
+    @Test
+    public void equalEntitiesAreTrackedByIdentity() {
+        Item loaded = new Item(1L, "a");
+        Item copy = new Item(1L, "a");
+        tracker.snapshot(loaded);
+        assertTrue(tracker.isTracked(loaded));
+        assertFalse(tracker.isTracked(copy));
+        tracker.forget(loaded);
+    }
+
+    @Test
+    public void snapshotGoesAwayWithItsEntity() throws InterruptedException {
+        int before = tracker.size();
+        for (int i = 0; i < 100; i++) {
+            tracker.snapshot(new Item((long) i, "a"));
+        }
+        for (int i = 0; i < 50 && tracker.size() > before; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertTrue(tracker.size() <= before);
+    }
+
+    @Test
+    public void unchangedTrackedEntityIsNotWritten() throws SQLException {
+        dao.insertEntity(new Item(1L, "a"));
+        Item item = dao.findEntityById(1L);
+        // a write behind the DAO's back shows whether the update touched the row
+        TestDatabase.execute("UPDATE tracked_items SET name = 'elsewhere' WHERE id = 1");
+        assertEquals(0, dao.updateEntity(item));
+        assertEquals("elsewhere", dao.findEntityById(1L).name);
+    }
+
+    @Test
+    public void onlyChangedColumnsAreWrittenIncludingNull() throws SQLException {
+        Item inserted = new Item(1L, "a");
+        inserted.qty = 1;
+        dao.insertEntity(inserted);
+        Item item = dao.findEntityById(1L);
+        TestDatabase.execute("UPDATE tracked_items SET qty = 7 WHERE id = 1");
+        item.name = null;
+        assertEquals(1, dao.updateEntity(item));
+        Item found = dao.findEntityById(1L);
+        assertNull(found.name);
+        assertEquals(7, found.qty);
+    }
+
+    @Test
+    public void updateAllSkipsUnchangedEntities() throws SQLException {
+        dao.insertAll(Arrays.asList(new Item(1L, "a"), new Item(2L, "b"), new Item(3L, "c")));
+        List<Item> items = new ArrayList<>(dao.findEntitiesByIds(Arrays.asList(1L, 2L, 3L)).values());
+        TestDatabase.execute("UPDATE tracked_items SET name = 'elsewhere'");
+        items.get(1).qty = 5;
+        assertEquals(1, dao.updateAll(items));
+        assertEquals("elsewhere", dao.findEntityById(1L).name);
+        assertEquals(5, dao.findEntityById(2L).qty);
+        assertEquals("elsewhere", dao.findEntityById(3L).name);
+        assertEquals(0, dao.updateAll(items));
+    }
+}
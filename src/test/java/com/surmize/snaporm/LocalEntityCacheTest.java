@@ -0,0 +1,49 @@
+package com.surmize.snaporm;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LocalEntityCacheTest {
+
+    private final LocalEntityCache cache = new LocalEntityCache(10, 60, TimeUnit.SECONDS);
+
+    @Test
+    public void putIsRefusedAfterItsKeyIsInvalidated() {
+        long count = cache.getInvalidationCount(1L);
+        cache.invalidate(1L);
+        cache.put(1L, "stale", count);
+        assertNull(cache.get(1L));
+        cache.put(1L, "fresh", cache.getInvalidationCount(1L));
+        assertEquals("fresh", cache.get(1L));
+    }
+
+    @Test
+    public void invalidatingOtherKeysDoesNotRefusePut() {
+        long count = cache.getInvalidationCount(1L);
+        cache.invalidate(2L);
+        cache.invalidate(3L);
+        cache.put(1L, "row", count);
+        assertEquals("row", cache.get(1L));
+    }
+
+    @Test
+    public void putIsRefusedAfterClear() {
+        long count = cache.getInvalidationCount(1L);
+        cache.clear();
+        cache.put(1L, "stale", count);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    public void putIsRefusedOnceItsInvalidationIsNoLongerTracked() {
+        long count = cache.getInvalidationCount(1L);
+        for (long key = 0; key <= 2000; key++) {
+            cache.invalidate(key);
+        }
+        cache.put(5000L, "row", count);
+        assertNull(cache.get(5000L));
+    }
+}
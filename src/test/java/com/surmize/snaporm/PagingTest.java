@@ -0,0 +1,171 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PagingTest {
+
+    @TableName("paged_items")
+    public static class Item {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+        @ColumnName("due_day")
+        public LocalDate day;
+        @ColumnName("created")
+        public Date created;
+
+        public Item() {
+        }
+
+        Item(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class ItemDAO extends BaseDAO<Item> {
+    }
+
+    private final ItemDAO dao = new ItemDAO();
+    private final EntityMetadata metadata = EntityMetadata.forClass(Item.class);
+
+    @Before
+    public void createTable() throws SQLException {
+        TestDatabase.execute("DROP TABLE IF EXISTS paged_items",
+                "CREATE TABLE paged_items (id BIGINT PRIMARY KEY, name VARCHAR(20), due_day DATE, created TIMESTAMP)");
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        List<Long> ids = new ArrayList<>();
+        for (Item item : items) {
+            ids.add(item.id);
+        }
+        return ids;
+    }
+
+    private List<Long> readAllPages(String sortColumn, int pageSize) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        String token = null;
+        do {
+            Page<Item> page = dao.findPage(sortColumn, token, pageSize);
+            ids.addAll(ids(page.getItems()));
+            token = page.getNextPageToken();
+        } while (token != null);
+        return ids;
+    }
+
+    @Test
+    public void pagesByPrimaryKey() throws SQLException {
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= 7; id++) {
+            items.add(new Item(id * 10, "n" + id));
+        }
+        dao.insertAll(items);
+        Page<Item> first = dao.findPage(null, null, 3);
+        assertEquals(Arrays.asList(10L, 20L, 30L), ids(first.getItems()));
+        assertEquals(Arrays.asList(10L, 20L, 30L, 40L, 50L, 60L, 70L), readAllPages(null, 3));
+        Page<Item> exact = dao.findPage(null, null, 7);
+        assertFalse(exact.hasNext());
+        assertNull(exact.getNextPageToken());
+    }
+
+    @Test
+    public void pagesBySortColumnWithTiesBrokenByKey() throws SQLException {
+        dao.insertAll(Arrays.asList(new Item(1L, "b"), new Item(2L, "a"), new Item(3L, "b"),
+                new Item(4L, "a"), new Item(5L, "c"), new Item(6L, "b")));
+        assertEquals(Arrays.asList(2L, 4L, 1L, 3L, 6L, 5L), readAllPages("name", 2));
+        assertEquals(Arrays.asList(2L, 4L, 1L, 3L, 6L, 5L), readAllPages("name", 1));
+    }
+
+    @Test
+    public void tokenOfAnotherSortOrderIsRejected() throws SQLException {
+        dao.insertAll(Arrays.asList(new Item(1L, "a"), new Item(2L, "b")));
+        String token = dao.findPage("name", null, 1).getNextPageToken();
+        try {
+            dao.findPage(null, token, 1);
+            fail("token of another sort order was accepted");
+        } catch (SQLException expected) {
+        }
+        try {
+            dao.findPage("name", "not a token", 1);
+            fail("invalid token was accepted");
+        } catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void tokenRoundTripsKeyValues() throws SQLException {
+        Item item = new Item(42L, "x");
+        item.day = LocalDate.of(2024, 2, 29);
+        item.created = new Date(1700000000123L);
+        List<ColumnMetadata> byName = Arrays.asList(metadata.getColumn("name"), metadata.getPrimaryKey());
+        assertArrayEquals(new Object[]{"x", 42L},
+                PageToken.decode(PageToken.encode("name", byName, item), "name", byName));
+        List<ColumnMetadata> byDay = Arrays.asList(metadata.getColumn("due_day"), metadata.getPrimaryKey());
+        assertArrayEquals(new Object[]{LocalDate.of(2024, 2, 29), 42L},
+                PageToken.decode(PageToken.encode("due_day", byDay, item), "due_day", byDay));
+        List<ColumnMetadata> byCreated = Arrays.asList(metadata.getColumn("created"), metadata.getPrimaryKey());
+        Object[] created = PageToken.decode(PageToken.encode("created", byCreated, item), "created", byCreated);
+        assertEquals(1700000000123L, ((Date) created[0]).getTime());
+    }
+
+    @Test
+    public void tokenCannotPagePastNull() {
+        List<ColumnMetadata> byName = Arrays.asList(metadata.getColumn("name"), metadata.getPrimaryKey());
+        try {
+            PageToken.encode("name", byName, new Item(1L, null));
+            fail("null sort value was encoded");
+        } catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void rangesSplitEvenlyAndCoverTheSpan() {
+        assertEquals("[[1, 4], [5, 7], [8, 10]]", PrimaryKeyRange.split(1, 10, 3).toString());
+        assertEquals("[[5, 5]]", PrimaryKeyRange.split(5, 5, 4).toString());
+        assertEquals("[[1, 1], [2, 2]]", PrimaryKeyRange.split(1, 2, 8).toString());
+        assertEquals("[]", PrimaryKeyRange.split(2, 1, 3).toString());
+    }
+
+    @Test
+    public void rangesOfExtremeKeysDoNotOverflow() {
+        List<PrimaryKeyRange> ranges = PrimaryKeyRange.split(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+        assertEquals(4, ranges.size());
+        assertEquals(Long.MIN_VALUE, ranges.get(0).getFrom());
+        assertEquals(Long.MAX_VALUE, ranges.get(3).getTo());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getTo() + 1, ranges.get(i).getFrom());
+        }
+        assertEquals("[[-1, 4611686018427387903], [4611686018427387904, 9223372036854775807]]",
+                PrimaryKeyRange.split(-1, Long.MAX_VALUE, 2).toString());
+    }
+
+    @Test
+    public void scanInParallelReadsEveryRowWithMoreThreadsThanConnections() throws SQLException {
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            items.add(new Item(id, "n" + id));
+        }
+        dao.insertAll(items);
+        final AtomicLong sum = new AtomicLong();
+        long processed = dao.scanInParallel(64, entity -> sum.addAndGet(entity.id));
+        assertEquals(100, processed);
+        assertEquals(5050, sum.get());
+    }
+}
@@ -0,0 +1,79 @@
+package com.surmize.snaporm;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class QueryCacheTest {
+
+    private static Set<String> tables(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void readTablesOfSimpleSelect() {
+        assertEquals(tables("stock_symbols"), QueryCache.getReadTables("SELECT * FROM stock_symbols WHERE id = ?"));
+    }
+
+    @Test
+    public void readTablesOfJoins() {
+        assertEquals(tables("orders", "lines", "products"), QueryCache.getReadTables(
+                "SELECT o.* FROM orders o JOIN lines AS l ON l.order_id = o.id "
+                + "LEFT OUTER JOIN products p ON p.id = l.product_id WHERE o.id = ?"));
+    }
+
+    @Test
+    public void readTablesOfCommaJoins() {
+        assertEquals(tables("a", "b", "c"), QueryCache.getReadTables("SELECT * FROM a, b x, c AS y WHERE a.id = x.id"));
+    }
+
+    @Test
+    public void readTablesOfSubqueries() {
+        assertEquals(tables("a", "d"), QueryCache.getReadTables(
+                "SELECT * FROM a WHERE a.id IN (SELECT id FROM d) ORDER BY 1"));
+        assertEquals(tables("e", "f"), QueryCache.getReadTables(
+                "SELECT * FROM (SELECT * FROM e) t LEFT JOIN f ON f.id = t.id"));
+    }
+
+    @Test
+    public void readTablesOfQuotedAndQualifiedNames() {
+        assertEquals(tables("stock_symbols", "orders", "lines"), QueryCache.getReadTables(
+                "SELECT * FROM `db`.`Stock_Symbols` s JOIN \"Orders\" o ON o.sid = s.id JOIN dbo.[Lines] l ON l.oid = o.id"));
+    }
+
+    @Test
+    public void readTablesIgnoreStringLiterals() {
+        assertEquals(tables("notes"), QueryCache.getReadTables(
+                "SELECT * FROM notes WHERE body = 'copied from archive join users'"));
+    }
+
+    @Test
+    public void writtenTableOfEachStatement() {
+        assertEquals("foo", QueryCache.getWrittenTable("insert into foo(a) values (1)"));
+        assertEquals("t", QueryCache.getWrittenTable("INSERT IGNORE INTO t VALUES (1)"));
+        assertEquals("bar", QueryCache.getWrittenTable("  UPDATE  db.Bar SET x = 1"));
+        assertEquals("baz", QueryCache.getWrittenTable("delete from \"Baz\" where id = ?"));
+        assertEquals("m", QueryCache.getWrittenTable("MERGE INTO m KEY(id) VALUES (1)"));
+        assertEquals("r", QueryCache.getWrittenTable("REPLACE INTO `r` VALUES (1)"));
+        assertEquals("q", QueryCache.getWrittenTable("TRUNCATE TABLE q"));
+    }
+
+    @Test
+    public void writtenTableOfOtherStatementsIsNull() {
+        assertNull(QueryCache.getWrittenTable("CREATE TABLE z (x INT)"));
+        assertNull(QueryCache.getWrittenTable("SELECT * FROM updates"));
+    }
+
+    @Test
+    public void normalizeSqlCollapsesWhitespaceOutsideQuotes() {
+        assertEquals("select * from t where a = 'x   y'",
+                QueryCache.normalizeSql("  select  *\n from t\twhere a = 'x   y' ;"));
+        assertEquals("select \"a  b\" from t", QueryCache.normalizeSql("select \"a  b\"\nfrom t"));
+        assertEquals(QueryCache.normalizeSql("SELECT * FROM t WHERE id = ?"),
+                QueryCache.normalizeSql("SELECT *\n  FROM t\n WHERE id = ?;"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RelationLoaderTest {
+
+    @TableName("rel_orders")
+    public static class Order {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @OneToMany(mappedBy = "order_id")
+        public List<Line> lines;
+        @OneToMany(mappedBy = "order_id")
+        public Set<Line> lineSet;
+    }
+
+    @TableName("rel_lines")
+    public static class Line {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("order_id")
+        public Long orderId;
+        @ColumnName("product_id")
+        public Long productId;
+        @ManyToOne("product_id")
+        public Product product;
+    }
+
+    @TableName("rel_products")
+    public static class Product {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+    }
+
+    public static class OrderDAO extends BaseDAO<Order> {
+    }
+
+    public static class LineDAO extends BaseDAO<Line> {
+    }
+
+    private final OrderDAO orderDao = new OrderDAO();
+
+    @Before
+    public void createTables() throws SQLException {
+        // NULL product ids stay null rather than 0
+        RowMapper.setNullWrappers(true);
+        TestDatabase.execute("DROP TABLE IF EXISTS rel_lines", "DROP TABLE IF EXISTS rel_orders", "DROP TABLE IF EXISTS rel_products",
+                "CREATE TABLE rel_orders (id BIGINT PRIMARY KEY)",
+                "CREATE TABLE rel_products (id BIGINT PRIMARY KEY, name VARCHAR(20))",
+                "CREATE TABLE rel_lines (id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT)",
+                "INSERT INTO rel_products VALUES (1, 'apple'), (2, 'pear')");
+        // orders 1..7; order n has n - 1 lines, so order 1 has none
+        long lineId = 1;
+        for (long order = 1; order <= 7; order++) {
+            TestDatabase.execute("INSERT INTO rel_orders VALUES (" + order + ")");
+            for (int i = 1; i < order; i++) {
+                TestDatabase.execute("INSERT INTO rel_lines VALUES (" + lineId++ + ", " + order + ", " + (i % 2 == 0 ? "2" : "NULL") + ")");
+            }
+        }
+    }
+
+    @After
+    public void readNullWrappersAsZero() {
+        RowMapper.setNullWrappers(false);
+    }
+
+    private List<Order> orders() throws SQLException {
+        return orderDao.executeSelect("SELECT * FROM rel_orders ORDER BY id");
+    }
+
+    @Test
+    public void oneToManyStitchesChildrenOntoTheirOwners() throws SQLException {
+        List<Order> orders = orderDao.executeSelect("SELECT * FROM rel_orders ORDER BY id", null, "lines", "lineSet");
+        assertEquals(7, orders.size());
+        for (Order order : orders) {
+            assertNotNull(order.lines);
+            assertEquals(order.id - 1, order.lines.size());
+            assertEquals(order.id - 1, order.lineSet.size());
+            for (Line line : order.lines) {
+                assertEquals(order.id, line.orderId);
+            }
+        }
+        assertTrue(orders.get(0).lines.isEmpty());
+    }
+
+    @Test
+    public void chunkBoundariesDoNotDropOrDuplicateChildren() throws SQLException {
+        for (int inListSize : new int[]{1, 2, 3, 6, 7, 100}) {
+            orderDao.setInListSize(inListSize);
+            List<Order> orders = orders();
+            orderDao.fetchRelations(orders, "lines");
+            int lines = 0;
+            for (Order order : orders) {
+                assertEquals(order.id - 1, order.lines.size());
+                lines += order.lines.size();
+            }
+            assertEquals(21, lines);
+        }
+    }
+
+    @Test
+    public void manyToOneLeavesNullForeignKeysUnset() throws SQLException {
+        List<Line> lines = new LineDAO().executeSelect("SELECT * FROM rel_lines ORDER BY id", null, "product");
+        Product pear = null;
+        for (Line line : lines) {
+            if (line.productId == null) {
+                assertNull(line.product);
+            } else {
+                assertEquals("pear", line.product.name);
+                // one instance per loaded row, shared by every owner that refers to it
+                if (pear != null) {
+                    assertSame(pear, line.product);
+                }
+                pear = line.product;
+            }
+        }
+        assertNotNull(pear);
+    }
+
+    @Test
+    public void nestedPathsLoadRelationsOfLoadedEntities() throws SQLException {
+        orderDao.setInListSize(2);
+        List<Order> orders = orderDao.executeSelect("SELECT * FROM rel_orders WHERE id >= ? ORDER BY id", Arrays.asList(5), "lines.product");
+        assertEquals(3, orders.size());
+        for (Order order : orders) {
+            for (Line line : order.lines) {
+                assertEquals(line.productId == null ? null : "pear", line.product == null ? null : line.product.name);
+            }
+        }
+    }
+
+    @Test
+    public void emptyOwnersAndUnknownRelations() throws SQLException {
+        orderDao.fetchRelations(new ArrayList<Order>(), "lines");
+        orderDao.fetchRelations(Collections.<Order>emptyList(), "lines.product");
+        try {
+            orderDao.fetchRelations(orders(), "missing");
+            fail("unknown relation was accepted");
+        } catch (SQLException expected) {
+        }
+    }
+}
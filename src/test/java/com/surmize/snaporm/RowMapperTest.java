@@ -0,0 +1,81 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RowMapperTest {
+
+    @TableName("nullable_items")
+    public static class Item {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("qty")
+        public Integer qty;
+        @ColumnName("total")
+        public Long total;
+        @ColumnName("price")
+        public Double price;
+        @ColumnName("active")
+        public Boolean active;
+        @ColumnName("count")
+        public int count;
+        @ColumnName("name")
+        public String name;
+    }
+
+    public static class ItemDAO extends BaseDAO<Item> {
+    }
+
+    private final ItemDAO dao = new ItemDAO();
+
+    @Before
+    public void createTable() throws SQLException {
+        TestDatabase.execute("DROP TABLE IF EXISTS nullable_items",
+                "CREATE TABLE nullable_items (id BIGINT PRIMARY KEY, qty INT, total BIGINT, price DOUBLE, active BOOLEAN,"
+                + " count INT, name VARCHAR(20))",
+                "INSERT INTO nullable_items (id) VALUES (1)");
+    }
+
+    @After
+    public void readNullWrappersAsZero() {
+        RowMapper.setNullWrappers(false);
+    }
+
+    private List<Item> selectBothWays() throws SQLException {
+        List<Item> items = dao.executeSelect("SELECT * FROM nullable_items");
+        items.add(dao.selectColumnar("SELECT * FROM nullable_items", null).toEntity(0));
+        return items;
+    }
+
+    @Test
+    public void nullIsReadAsZeroIntoWrapperFields() throws SQLException {
+        for (Item item : selectBothWays()) {
+            assertEquals(Integer.valueOf(0), item.qty);
+            assertEquals(Long.valueOf(0), item.total);
+            assertEquals(Double.valueOf(0), item.price);
+            assertEquals(Boolean.FALSE, item.active);
+            assertEquals(0, item.count);
+            assertNull(item.name);
+        }
+    }
+
+    @Test
+    public void nullWrappersReadNullAsNull() throws SQLException {
+        RowMapper.setNullWrappers(true);
+        for (Item item : selectBothWays()) {
+            assertNull(item.qty);
+            assertNull(item.total);
+            assertNull(item.price);
+            assertNull(item.active);
+            assertEquals(0, item.count);
+            assertNull(item.name);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.surmize.snaporm;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The in-memory H2 database configured in the test snaporm.properties.
+ */
+final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    static void execute(String... statements) throws SQLException {
+        try (Connection con = DataSourceManager.getInstance().getConnection();
+                Statement stmt = con.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    static long count(String table) throws SQLException {
+        try (Connection con = DataSourceManager.getInstance().getConnection();
+                Statement stmt = con.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
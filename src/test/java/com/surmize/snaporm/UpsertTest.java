@@ -0,0 +1,135 @@
+package com.surmize.snaporm;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class UpsertTest {
+
+    @TableName("upsert_items")
+    public static class Item {
+        @PK
+        @ColumnName("id")
+        public Long id;
+        @ColumnName("name")
+        public String name;
+        @ColumnName("qty")
+        public int qty;
+
+        public Item() {
+        }
+
+        Item(Long id, String name, int qty) {
+            this.id = id;
+            this.name = name;
+            this.qty = qty;
+        }
+    }
+
+    public static class ItemDAO extends BaseDAO<Item> {
+    }
+
+    private final PreparedStatementGenerator generator = new PreparedStatementGenerator();
+    private final EntityMetadata metadata = EntityMetadata.forClass(Item.class);
+    private final ItemDAO dao = new ItemDAO();
+
+    @Before
+    public void createTable() throws SQLException {
+        TestDatabase.execute("DROP TABLE IF EXISTS upsert_items",
+                "CREATE TABLE upsert_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(20), qty INT)");
+    }
+
+    private List<ColumnMetadata> columns(String... names) {
+        ColumnMetadata[] columns = new ColumnMetadata[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = metadata.getColumn(names[i]);
+        }
+        return Arrays.asList(columns);
+    }
+
+    @Test
+    public void mysqlUpsertSql() throws SQLException {
+        assertEquals("INSERT INTO upsert_items (id,name,qty) VALUES (?,?,?) ON DUPLICATE KEY UPDATE name=VALUES(name),qty=VALUES(qty)",
+                generator.getUpsertSql(Dialect.MYSQL, metadata, columns("id", "name", "qty")));
+    }
+
+    @Test
+    public void postgresqlUpsertSql() throws SQLException {
+        assertEquals("INSERT INTO upsert_items (id,name,qty) VALUES (?,?,?) ON CONFLICT (id) DO UPDATE SET name=EXCLUDED.name,qty=EXCLUDED.qty",
+                generator.getUpsertSql(Dialect.POSTGRESQL, metadata, columns("id", "name", "qty")));
+    }
+
+    @Test
+    public void h2UpsertSql() throws SQLException {
+        assertEquals("MERGE INTO upsert_items (id,name,qty) KEY (id) VALUES (?,?,?)",
+                generator.getUpsertSql(Dialect.H2, metadata, columns("id", "name", "qty")));
+    }
+
+    @Test
+    public void sqlServerUpsertSql() throws SQLException {
+        assertEquals("MERGE INTO upsert_items AS target USING (VALUES (?,?,?)) AS source (id,name,qty) ON target.id = source.id"
+                + " WHEN MATCHED THEN UPDATE SET target.name=source.name,target.qty=source.qty"
+                + " WHEN NOT MATCHED THEN INSERT (id,name,qty) VALUES (source.id,source.name,source.qty);",
+                generator.getUpsertSql(Dialect.SQLSERVER, metadata, columns("id", "name", "qty")));
+    }
+
+    @Test
+    public void oracleUpsertSql() throws SQLException {
+        assertEquals("MERGE INTO upsert_items target USING (SELECT ? id,? name,? qty FROM dual) source ON (target.id = source.id)"
+                + " WHEN MATCHED THEN UPDATE SET target.name=source.name,target.qty=source.qty"
+                + " WHEN NOT MATCHED THEN INSERT (id,name,qty) VALUES (source.id,source.name,source.qty)",
+                generator.getUpsertSql(Dialect.ORACLE, metadata, columns("id", "name", "qty")));
+    }
+
+    @Test
+    public void upsertOfKeyOnlyLeavesExistingRows() throws SQLException {
+        assertEquals("INSERT INTO upsert_items (id) VALUES (?) ON DUPLICATE KEY UPDATE id=id",
+                generator.getUpsertSql(Dialect.MYSQL, metadata, columns("id")));
+        assertEquals("INSERT INTO upsert_items (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+                generator.getUpsertSql(Dialect.POSTGRESQL, metadata, columns("id")));
+        assertEquals("MERGE INTO upsert_items AS target USING (VALUES (?)) AS source (id) ON target.id = source.id"
+                + " WHEN NOT MATCHED THEN INSERT (id) VALUES (source.id);",
+                generator.getUpsertSql(Dialect.SQLSERVER, metadata, columns("id")));
+    }
+
+    @Test
+    public void genericDialectHasNoUpsert() {
+        try {
+            generator.getUpsertSql(Dialect.GENERIC, metadata, columns("id", "name"));
+            fail("GENERIC has no upsert");
+        } catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void insertOrUpdateEntityRoundTripsOnH2() throws SQLException {
+        assertEquals(Dialect.H2, DataSourceManager.getInstance().getDialect());
+        assertEquals(1, dao.insertOrUpdateEntity(new Item(1L, "first", 1)));
+        assertEquals(1, dao.insertOrUpdateEntity(new Item(1L, "second", 2)));
+        Item found = dao.findEntityById(1L);
+        assertEquals("second", found.name);
+        assertEquals(2, found.qty);
+        assertEquals(1, TestDatabase.count("upsert_items"));
+    }
+
+    @Test
+    public void insertOrUpdateAllCountsEachEntityOnce() throws SQLException {
+        // explicit keys stay clear of the identity values H2 generates
+        dao.insertEntity(new Item(101L, "old", 1));
+        Item added = new Item(null, "added", 3);
+        List<Item> items = Arrays.asList(new Item(101L, "updated", 2), new Item(102L, "new", 2), added);
+        assertEquals(3, dao.insertOrUpdateAll(items));
+        assertNotNull(added.id);
+        assertEquals("updated", dao.findEntityById(101L).name);
+        assertEquals("new", dao.findEntityById(102L).name);
+        assertEquals(3, TestDatabase.count("upsert_items"));
+        assertEquals(0, dao.insertOrUpdateAll(Collections.<Item>emptyList()));
+    }
+}